@@ -0,0 +1,67 @@
+package com.utochkin.kafkaproducerforsma.ranking;
+
+import com.utochkin.kafkaproducerforsma.props.FeedRankingProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FeedRankingBenchmark {
+
+    @Param({"200", "1000"})
+    private int topN;
+
+    private RankedFeed feed;
+    private List<RankingSignal> staticSignals;
+    private EngagementSignal engagementSignal;
+    private FeedCandidate newPost;
+    private long nextPostId;
+
+    @Setup
+    public void setUp() {
+        FeedRankingProperties feedRankingProperties = new FeedRankingProperties();
+        EngagementCounters engagementCounters = new EngagementCounters(feedRankingProperties);
+        staticSignals = List.of(new RecencySignal(feedRankingProperties), new AffinitySignal(feedRankingProperties));
+        engagementSignal = new EngagementSignal(engagementCounters, feedRankingProperties);
+
+        Random random = new Random(42);
+        Set<Long> friendIds = LongStream.range(0, 50).boxed().collect(Collectors.toSet());
+        feed = new RankedFeed(new RankingContext(1L, friendIds), topN);
+        long now = System.currentTimeMillis();
+        for (long postId = 1; postId <= topN * 5L; postId++) {
+            FeedCandidate candidate = new FeedCandidate(postId, (long) random.nextInt(500), now - random.nextInt(7 * 24 * 3600) * 1000L);
+            feed.offer(candidate, staticScore(candidate));
+            for (int views = random.nextInt(20); views > 0; views--) {
+                engagementCounters.recordView(postId);
+            }
+        }
+        nextPostId = topN * 5L + 1;
+        newPost = new FeedCandidate(nextPostId, 7L, now);
+    }
+
+    @Benchmark
+    public List<Long> rankFirstPage() {
+        return feed.top(0, 10, candidate -> engagementSignal.score(feed.getContext(), candidate));
+    }
+
+    @Benchmark
+    public boolean offerNewPost() {
+        FeedCandidate candidate = new FeedCandidate(nextPostId++, newPost.authorId(), newPost.createdAtMillis());
+        return feed.offer(candidate, staticScore(candidate));
+    }
+
+    private double staticScore(FeedCandidate candidate) {
+        double score = 0.0;
+        for (RankingSignal signal : staticSignals) {
+            score += signal.score(feed.getContext(), candidate);
+        }
+        return score;
+    }
+}
@@ -50,6 +50,8 @@ public class AppConfig {
                 .endpoint(minioProperties.getUrl())
                 .credentials(minioProperties.getAccessKey(),
                         minioProperties.getSecretKey())
+                // a known region lets the client sign URLs locally instead of asking the server for the bucket location
+                .region(minioProperties.getRegion())
                 .build();
     }
 
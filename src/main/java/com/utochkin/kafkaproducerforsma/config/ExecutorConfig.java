@@ -0,0 +1,95 @@
+package com.utochkin.kafkaproducerforsma.config;
+
+import com.utochkin.kafkaproducerforsma.props.FanOutProperties;
+import com.utochkin.kafkaproducerforsma.props.FeedCacheProperties;
+import com.utochkin.kafkaproducerforsma.props.FeedPushProperties;
+import com.utochkin.kafkaproducerforsma.props.FeedRankingProperties;
+import com.utochkin.kafkaproducerforsma.props.FeedWarmupProperties;
+import com.utochkin.kafkaproducerforsma.props.ImageVariantProperties;
+import com.utochkin.kafkaproducerforsma.props.TimelineProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Bounded executors of the background work that follows a write. None of them runs a task on the calling thread:
+ * a task that finds the queue full is rejected and counted in {@code executor.rejected}, and every caller has a
+ * fallback for it. Pool metrics are bound by Spring Boot for every executor bean, which also shuts them down
+ * gracefully with the context.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    public static final String TIMELINE_EXECUTOR = "timelineExecutor";
+    public static final String FEED_CACHE_EXECUTOR = "feedCacheExecutor";
+    public static final String FEED_RANKING_EXECUTOR = "feedRankingExecutor";
+    public static final String IMAGE_VARIANT_EXECUTOR = "imageVariantExecutor";
+    public static final String FEED_WARMUP_EXECUTOR = "feedWarmupExecutor";
+    public static final String FEED_PUSH_EXECUTOR = "feedPushExecutor";
+    public static final String FAN_OUT_EXECUTOR = "fanOutExecutor";
+
+    private static final int AWAIT_TERMINATION_SECONDS = 30;
+
+    @Bean(TIMELINE_EXECUTOR)
+    @ConditionalOnProperty(prefix = "feed.timeline", name = "enabled", havingValue = "true")
+    public ThreadPoolTaskExecutor timelineExecutor(TimelineProperties timelineProperties, MeterRegistry meterRegistry) {
+        return boundedExecutor(TIMELINE_EXECUTOR, timelineProperties.getThreads(), timelineProperties.getQueueCapacity(), meterRegistry);
+    }
+
+    @Bean(FEED_CACHE_EXECUTOR)
+    @ConditionalOnProperty(prefix = "feed.cache", name = "enabled", havingValue = "true")
+    public ThreadPoolTaskExecutor feedCacheExecutor(FeedCacheProperties feedCacheProperties, MeterRegistry meterRegistry) {
+        return boundedExecutor(FEED_CACHE_EXECUTOR, feedCacheProperties.getThreads(), feedCacheProperties.getQueueCapacity(), meterRegistry);
+    }
+
+    @Bean(FEED_RANKING_EXECUTOR)
+    @ConditionalOnProperty(prefix = "feed.ranking", name = "enabled", havingValue = "true")
+    public ThreadPoolTaskExecutor feedRankingExecutor(FeedRankingProperties feedRankingProperties, MeterRegistry meterRegistry) {
+        return boundedExecutor(FEED_RANKING_EXECUTOR, feedRankingProperties.getThreads(), feedRankingProperties.getQueueCapacity(), meterRegistry);
+    }
+
+    @Bean(IMAGE_VARIANT_EXECUTOR)
+    @ConditionalOnProperty(prefix = "image.variants", name = "enabled", havingValue = "true")
+    public ThreadPoolTaskExecutor imageVariantExecutor(ImageVariantProperties imageVariantProperties, MeterRegistry meterRegistry) {
+        return boundedExecutor(IMAGE_VARIANT_EXECUTOR, imageVariantProperties.getThreads(), imageVariantProperties.getQueueCapacity(), meterRegistry);
+    }
+
+    @Bean(FEED_WARMUP_EXECUTOR)
+    @ConditionalOnProperty(prefix = "feed.warmup", name = "enabled", havingValue = "true")
+    public ThreadPoolTaskExecutor feedWarmupExecutor(FeedWarmupProperties feedWarmupProperties, MeterRegistry meterRegistry) {
+        return boundedExecutor(FEED_WARMUP_EXECUTOR, feedWarmupProperties.getConcurrency(), feedWarmupProperties.getQueueCapacity(), meterRegistry);
+    }
+
+    @Bean(FEED_PUSH_EXECUTOR)
+    @ConditionalOnProperty(prefix = "feed.push", name = "enabled", havingValue = "true")
+    public ThreadPoolTaskExecutor feedPushExecutor(FeedPushProperties feedPushProperties, MeterRegistry meterRegistry) {
+        return boundedExecutor(FEED_PUSH_EXECUTOR, feedPushProperties.getThreads(), feedPushProperties.getQueueCapacity(), meterRegistry);
+    }
+
+    @Bean(FAN_OUT_EXECUTOR)
+    @ConditionalOnProperty(prefix = "notification.fan-out", name = "enabled", havingValue = "true")
+    public ThreadPoolTaskExecutor fanOutExecutor(FanOutProperties fanOutProperties, MeterRegistry meterRegistry) {
+        return boundedExecutor(FAN_OUT_EXECUTOR, fanOutProperties.getThreads(), fanOutProperties.getQueueCapacity(), meterRegistry);
+    }
+
+    public static ThreadPoolTaskExecutor boundedExecutor(String name, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        Counter rejected = meterRegistry.counter("executor.rejected", "name", name);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(name + "-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            throw new RejectedExecutionException("Executor " + name + " is saturated");
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(AWAIT_TERMINATION_SECONDS);
+        return executor;
+    }
+}
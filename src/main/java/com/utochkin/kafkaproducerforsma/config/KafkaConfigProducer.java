@@ -1,13 +1,23 @@
 package com.utochkin.kafkaproducerforsma.config;
 
+import com.utochkin.kafkaproducerforsma.props.FanOutProperties;
+import com.utochkin.kafkaproducerforsma.props.KafkaProducerProfileProperties;
+import com.utochkin.kafkaproducerforsma.sender.HotKeyPartitioner;
+import com.utochkin.kafkaproducerforsma.sender.HotKeyTracker;
+import com.utochkin.kafkaproducerforsma.sender.KafkaSenderService;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 @Configuration
 @RequiredArgsConstructor
@@ -23,4 +33,44 @@ public class KafkaConfigProducer {
                 .build();
     }
 
+    @Bean
+    public NewTopic postStateTopic() {
+        return TopicBuilder
+                .name(KafkaSenderService.POST_STATE_TOPIC)
+                .partitions(3)
+                .replicas(1)
+                .compact()
+                .config(TopicConfig.DELETE_RETENTION_MS_CONFIG, String.valueOf(Duration.ofDays(1).toMillis()))
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "kafka.producer-profile", name = "active")
+    public DefaultKafkaProducerFactoryCustomizer producerProfileCustomizer(KafkaProducerProfileProperties profileProperties) {
+        Map<String, String> profile = profileProperties.getProfiles().get(profileProperties.getActive());
+        if (profile == null) {
+            throw new IllegalStateException("Unknown Kafka producer profile: " + profileProperties.getActive()
+                    + ", available profiles: " + profileProperties.getProfiles().keySet());
+        }
+        return producerFactory -> producerFactory.updateConfigs(new HashMap<>(profile));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "kafka.hot-key", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public DefaultKafkaProducerFactoryCustomizer hotKeyPartitionerCustomizer(HotKeyTracker hotKeyTracker) {
+        return producerFactory -> producerFactory.updateConfigs(Map.of(
+                ProducerConfig.PARTITIONER_CLASS_CONFIG, HotKeyPartitioner.class.getName(),
+                HotKeyPartitioner.TRACKER_CONFIG, hotKeyTracker));
+    }
+
+    @Bean
+    public NewTopic followerTopic(FanOutProperties fanOutProperties) {
+        return TopicBuilder
+                .name(fanOutProperties.getTopic())
+                .partitions(3)
+                .replicas(1)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(Duration.ofDays(7).toMillis()))
+                .build();
+    }
+
 }
@@ -1,6 +1,10 @@
 package com.utochkin.kafkaproducerforsma.config;
 
+import com.utochkin.kafkaproducerforsma.security.JwtChannelInterceptor;
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
@@ -8,14 +12,18 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor(onConstructor = @__(@Lazy))
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final JwtChannelInterceptor jwtChannelInterceptor;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.setApplicationDestinationPrefixes("/app"); //Сообщения STOMP,
         // заголовок назначения которых начинается с /chat, направляются к @MessageMapping методам в @Controller классах
-        config.enableSimpleBroker("/chat"); // Используйте встроенный брокер сообщений для подписки
+        config.enableSimpleBroker("/chat", "/queue"); // Используйте встроенный брокер сообщений для подписки
         // и широковещательной рассылки и направляйте брокеру сообщения, заголовок назначения которых начинается с /chat
+        config.setUserDestinationPrefix("/user"); // Персональные очереди пользователя, например /user/queue/feed
     }
 
     @Override
@@ -24,4 +32,9 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // (или SockJS) необходимо подключиться для подтверждения связи с WebSocket
     }
 
-}
\ No newline at end of file
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(jwtChannelInterceptor); // Аутентификация CONNECT по JWT из заголовка Authorization
+    }
+
+}
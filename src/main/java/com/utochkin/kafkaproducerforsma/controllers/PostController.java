@@ -1,9 +1,14 @@
 package com.utochkin.kafkaproducerforsma.controllers;
 
 
+import com.utochkin.kafkaproducerforsma.dto.FeedDeltaDto;
+import com.utochkin.kafkaproducerforsma.dto.FeedPageDto;
+import com.utochkin.kafkaproducerforsma.dto.ImageUploadDto;
 import com.utochkin.kafkaproducerforsma.dto.PostDto;
 import com.utochkin.kafkaproducerforsma.dto.response.ErrorResponse;
 import com.utochkin.kafkaproducerforsma.models.Post;
+import com.utochkin.kafkaproducerforsma.ranking.EngagementCounters;
+import com.utochkin.kafkaproducerforsma.services.interfaces.ImageLinkService;
 import com.utochkin.kafkaproducerforsma.services.interfaces.PostService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -19,6 +24,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -26,6 +32,9 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/post")
 @RequiredArgsConstructor
@@ -33,6 +42,8 @@ import org.springframework.web.multipart.MultipartFile;
 public class PostController {
 
     private final PostService postService;
+    private final EngagementCounters engagementCounters;
+    private final ImageLinkService imageLinkService;
 
     @PostMapping(value = "/create", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "Создание поста")
@@ -47,6 +58,33 @@ public class PostController {
         return new ResponseEntity<>(savedPost, HttpStatus.CREATED);
     }
 
+    @PostMapping("/createImageUploadUrl")
+    @Operation(summary = "Получение ссылки для загрузки картинки поста напрямую в хранилище")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Upload url successful created", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImageUploadDto.class))),
+            @ApiResponse(responseCode = "404", description = "Not found", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<?> createImageUploadUrl(@NotNull @RequestParam @Parameter(name = "fileName", description = "Имя загружаемого файла", in = ParameterIn.QUERY, example = "image_name.jpeg") String fileName,
+                                                  @NotNull @RequestParam @Parameter(name = "contentType", description = "Content-Type загружаемого файла (image/png, image/jpg, image/jpeg)",
+                                                          in = ParameterIn.QUERY, example = "image/jpeg") String contentType) {
+        return new ResponseEntity<>(postService.createImageUploadUrl(fileName, contentType), HttpStatus.OK);
+    }
+
+    @PostMapping("/createWithUploadedImage")
+    @Operation(summary = "Создание поста с картинкой, загруженной по ссылке из createImageUploadUrl")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Post successful created", content = @Content(mediaType = "application/json", schema = @Schema(implementation = PostDto.class))),
+            @ApiResponse(responseCode = "404", description = "Not found", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<?> createPostWithUploadedImage(@Valid @org.springframework.web.bind.annotation.RequestBody PostDto postDto,
+                                                         @NotNull @RequestParam @Parameter(name = "imageName", description = "imageName из ответа createImageUploadUrl", in = ParameterIn.QUERY) String imageName) {
+        PostDto savedPost = postService.createPostWithUploadedImage(postDto, imageName);
+        return new ResponseEntity<>(savedPost, HttpStatus.CREATED);
+    }
+
     @GetMapping("/get")
     @Operation(summary = "Получение поста по id")
     @ApiResponses(value = {
@@ -54,7 +92,10 @@ public class PostController {
             @ApiResponse(responseCode = "404", description = "Not found", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
     public ResponseEntity<?> getPost(@NotNull @RequestParam @Parameter(name = "postId", description = "ID поста", in = ParameterIn.QUERY, example = "1") Long postId) {
-        return new ResponseEntity<>(postService.getPost(postId), HttpStatus.OK);
+        PostDto postDto = postService.getPost(postId);
+        imageLinkService.resolveLinks(postDto);
+        engagementCounters.recordView(postId);
+        return new ResponseEntity<>(postDto, HttpStatus.OK);
     }
 
     @PutMapping(value = "/update", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -100,7 +141,62 @@ public class PostController {
                                                  in = ParameterIn.QUERY, example = "true") boolean isSortAsDesk) {
         Sort sortByCreatedAt = isSortAsDesk ? Sort.by("created_at").descending() : Sort.by("created_at");
         Pageable paging = PageRequest.of(page, size, sortByCreatedAt);
-        return new ResponseEntity<>(postService.getFeedUser(paging), HttpStatus.OK);
+        List<PostDto> posts = postService.getFeedUser(paging);
+        imageLinkService.resolveLinks(posts);
+        return new ResponseEntity<>(posts, HttpStatus.OK);
+    }
+
+    @GetMapping("/getRankedFeedUser")
+    @Operation(summary = "Получение ленты активности, отсортированной по рейтингу (свежесть, друзья, просмотры)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful get ranked feed", content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = PostDto.class)))),
+            @ApiResponse(responseCode = "404", description = "Not found", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<?> getRankedFeedUser(@NotNull @RequestParam(defaultValue = "0") @Parameter(name = "page", description = "Номер отображаемой страницы ленты активности (начинается с 0), рейтинг хранится для feed.ranking.top-n постов",
+                                                       in = ParameterIn.QUERY, example = "0") int page,
+                                               @NotNull @RequestParam(defaultValue = "10") @Parameter(name = "size", description = "Размер отображаемой страницы ленты активности",
+                                                       in = ParameterIn.QUERY, example = "10") int size) {
+        List<PostDto> posts = postService.getRankedFeedUser(page, size);
+        imageLinkService.resolveLinks(posts);
+        return new ResponseEntity<>(posts, HttpStatus.OK);
+    }
+
+    @GetMapping("/getFeedUserByCursor")
+    @Operation(summary = "Получение постов ленты активности по курсору (от новых к старым)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful get feed page", content = @Content(mediaType = "application/json", schema = @Schema(implementation = FeedPageDto.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Not found", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<?> getFeedUserByCursor(@RequestParam(required = false) @Parameter(name = "cursor", description = "Курсор из nextCursor предыдущей страницы (без курсора возвращается первая страница)",
+                                                         in = ParameterIn.QUERY) String cursor,
+                                                 @NotNull @RequestParam(defaultValue = "10") @Parameter(name = "size", description = "Размер отображаемой страницы ленты активности (не больше feed.cursor.max-size)",
+                                                         in = ParameterIn.QUERY, example = "10") int size) {
+        FeedPageDto feedPage = postService.getFeedUserByCursor(cursor, size);
+        imageLinkService.resolveLinks(feedPage.getPosts());
+        return new ResponseEntity<>(feedPage, HttpStatus.OK);
+    }
+
+    @GetMapping("/getFeedUserSince")
+    @Operation(summary = "Получение изменений ленты активности: новые посты и id удаленных постов после последней синхронизации")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successful get feed delta", content = @Content(mediaType = "application/json", schema = @Schema(implementation = FeedDeltaDto.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Not found", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<?> getFeedUserSince(@RequestParam(required = false) @Parameter(name = "sincePostId", description = "Id самого нового поста, который уже есть у клиента",
+                                                      in = ParameterIn.QUERY, example = "42") Long sincePostId,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @Parameter(name = "since", description = "Время создания самого нового поста, который уже есть у клиента",
+                                                      in = ParameterIn.QUERY, example = "2024-01-12T13:56:00.123456") LocalDateTime since,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @Parameter(name = "deletedSince", description = "Значение deletedUntil из предыдущего ответа",
+                                                      in = ParameterIn.QUERY, example = "2024-01-12T14:02:00.654321") LocalDateTime deletedSince,
+                                              @RequestParam(required = false) @Parameter(name = "deletedAfterPostId", description = "Значение deletedUntilPostId из предыдущего ответа",
+                                                      in = ParameterIn.QUERY, example = "42") Long deletedAfterPostId,
+                                              @NotNull @RequestParam(defaultValue = "100") @Parameter(name = "limit", description = "Максимальное количество возвращаемых постов",
+                                                      in = ParameterIn.QUERY, example = "100") int limit) {
+        FeedDeltaDto feedDelta = postService.getFeedUserSince(sincePostId, since, deletedSince, deletedAfterPostId, limit);
+        imageLinkService.resolveLinks(feedDelta.getPosts());
+        return new ResponseEntity<>(feedDelta, HttpStatus.OK);
     }
 
     @GetMapping("/getAllPosts")
@@ -112,6 +208,8 @@ public class PostController {
             @ApiResponse(responseCode = "403", description = "Not forbidden", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
     public ResponseEntity<?> getAllPosts() {
-        return new ResponseEntity<>(postService.getAllPosts(), HttpStatus.OK);
+        List<PostDto> posts = postService.getAllPosts();
+        imageLinkService.resolveLinks(posts);
+        return new ResponseEntity<>(posts, HttpStatus.OK);
     }
 }
\ No newline at end of file
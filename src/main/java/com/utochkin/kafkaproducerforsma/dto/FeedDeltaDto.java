@@ -0,0 +1,41 @@
+package com.utochkin.kafkaproducerforsma.dto;
+
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "FeedDeltaDto response")
+public class FeedDeltaDto implements Serializable {
+
+    @ArraySchema(schema = @Schema(implementation = PostDto.class, description = "Новые и измененные посты, от старых к новым"))
+    private List<PostDto> posts;
+
+    @ArraySchema(schema = @Schema(description = "Id удаленных постов", example = "42", type = "integer"))
+    private List<Long> deletedPostIds;
+
+    @Schema(description = "Id самого нового поста, известного клиенту (передается в sincePostId при следующем запросе)", example = "42", type = "integer")
+    private Long newestPostId;
+
+    @Schema(description = "Время создания самого нового поста с точностью до микросекунд (передается в since при следующем запросе)", example = "2024-01-12T13:56:00.123456", type = "string")
+    private LocalDateTime newestCreatedAt;
+
+    @Schema(description = "Время удаления последнего возвращенного поста (передается в deletedSince при следующем запросе)", example = "2024-01-12T14:02:00.654321", type = "string")
+    private LocalDateTime deletedUntil;
+
+    @Schema(description = "Id последнего возвращенного удаленного поста (передается в deletedAfterPostId при следующем запросе)", example = "42", type = "integer")
+    private Long deletedUntilPostId;
+
+    @Schema(description = "Есть ли еще новые или удаленные посты (нужно повторить запрос с новыми newestPostId, newestCreatedAt, deletedUntil и deletedUntilPostId)", example = "false", type = "boolean")
+    private boolean hasMore;
+}
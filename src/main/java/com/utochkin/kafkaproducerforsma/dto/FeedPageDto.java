@@ -0,0 +1,28 @@
+package com.utochkin.kafkaproducerforsma.dto;
+
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "FeedPageDto response")
+public class FeedPageDto implements Serializable {
+
+    @ArraySchema(schema = @Schema(implementation = PostDto.class, description = "Посты страницы ленты активности"))
+    private List<PostDto> posts;
+
+    @Schema(description = "Курсор следующей страницы (null, если страница последняя)", example = "MjAyNC0wMS0xMlQxMzo1NjowMC4xMjM0NTZ8NDI", type = "string")
+    private String nextCursor;
+
+    @Schema(description = "Есть ли следующая страница", example = "true", type = "boolean")
+    private boolean hasNext;
+}
@@ -0,0 +1,31 @@
+package com.utochkin.kafkaproducerforsma.dto;
+
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "FeedUpdateDto STOMP frame /user/queue/feed")
+public class FeedUpdateDto implements Serializable {
+
+    @Schema(description = "Тип изменения", example = "POST_CREATED", type = "string")
+    private OutboxEventType type;
+
+    @Schema(description = "Id поста", example = "42", type = "integer")
+    private Long postId;
+
+    @Schema(description = "Id автора поста", example = "1", type = "integer")
+    private Long authorId;
+
+    @Schema(description = "Время создания поста (передается в since эндпоинта getFeedUserSince)", example = "2024-01-12T13:56:00.123456", type = "string")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,27 @@
+package com.utochkin.kafkaproducerforsma.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Schema(description = "ImageUploadDto response")
+public class ImageUploadDto implements Serializable {
+
+    @Schema(description = "Название объекта картинки (передается в createWithUploadedImage)", example = "pending/1/325c0226-8acb-41ad-a214-40ff773b35bc: <2024-01-11T16:35:05.852513900> image_name.jpeg", type = "string")
+    private String imageName;
+
+    @Schema(description = "Ссылка для загрузки картинки методом PUT напрямую в хранилище", type = "string")
+    private String uploadUrl;
+
+    @Schema(description = "Время, до которого действительна ссылка", example = "2024-01-12T14:11:00", type = "string")
+    private LocalDateTime expiresAt;
+}
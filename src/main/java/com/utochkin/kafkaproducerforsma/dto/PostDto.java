@@ -43,6 +43,11 @@ public class PostDto implements Serializable {
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private String imageLink;
 
+    @Schema(description = "Ссылка на уменьшенную копию картинки для ленты (до ее готовности - ссылка на оригинал)", example = "http://localhost:9000/images/325c0226-8acb-41ad-a214-40ff773b35bc%3A%20%3C2024-01-11T16%3A35%3A05.852513900%3E%20image_name.jpeg_thumbnail.jpg",
+            type = "string", requiredMode = Schema.RequiredMode.NOT_REQUIRED, accessMode = Schema.AccessMode.READ_ONLY)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String thumbnailLink;
+
     @Schema(description = "Название загруженной картинки", example = "325c0226-8acb-41ad-a214-40ff773b35bc: <2024-01-11T16:35:05.852513900> image_name.jpeg",
             type = "string", requiredMode = Schema.RequiredMode.NOT_REQUIRED, accessMode = Schema.AccessMode.READ_ONLY)
     @Length(max = 255,
@@ -50,6 +55,11 @@ public class PostDto implements Serializable {
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private String imageName;
 
+    @Schema(description = "Название уменьшенной копии картинки для ленты (до ее готовности - название оригинала)", example = "325c0226-8acb-41ad-a214-40ff773b35bc: <2024-01-11T16:35:05.852513900> image_name.jpeg_thumbnail.jpg",
+            type = "string", requiredMode = Schema.RequiredMode.NOT_REQUIRED, accessMode = Schema.AccessMode.READ_ONLY)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String thumbnailName;
+
     @Schema(description = "Дата и время создания(изменения) поста", example = "2024-01-12 13:56", type = "string", pattern = "yyyy-MM-dd HH:mm", accessMode = Schema.AccessMode.READ_ONLY)
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm")
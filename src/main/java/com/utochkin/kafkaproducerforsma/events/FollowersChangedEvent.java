@@ -0,0 +1,4 @@
+package com.utochkin.kafkaproducerforsma.events;
+
+public record FollowersChangedEvent(Long followerId) {
+}
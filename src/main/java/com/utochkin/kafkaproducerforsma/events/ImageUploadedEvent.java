@@ -0,0 +1,4 @@
+package com.utochkin.kafkaproducerforsma.events;
+
+public record ImageUploadedEvent(Long postId, String imageName) {
+}
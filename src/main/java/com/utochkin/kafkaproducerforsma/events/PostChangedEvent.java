@@ -0,0 +1,8 @@
+package com.utochkin.kafkaproducerforsma.events;
+
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
+
+import java.time.LocalDateTime;
+
+public record PostChangedEvent(Long postId, Long authorId, LocalDateTime createdAt, OutboxEventType type) {
+}
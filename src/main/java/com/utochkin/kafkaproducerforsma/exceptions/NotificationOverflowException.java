@@ -0,0 +1,7 @@
+package com.utochkin.kafkaproducerforsma.exceptions;
+
+public class NotificationOverflowException extends RuntimeException {
+    public NotificationOverflowException(String msg) {
+        super(msg);
+    }
+}
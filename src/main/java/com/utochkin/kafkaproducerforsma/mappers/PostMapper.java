@@ -2,6 +2,7 @@ package com.utochkin.kafkaproducerforsma.mappers;
 
 
 import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.models.ImageVariant;
 import com.utochkin.kafkaproducerforsma.models.Post;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -13,13 +14,24 @@ import java.util.List;
         LocalDateTime.class
 })
 public interface PostMapper {
+    String THUMBNAIL = "thumbnail";
+
     @Mapping(target = "authorName", expression = "java(post.getUser().getName())")
+    @Mapping(target = "imageLink", ignore = true)
+    @Mapping(target = "thumbnailLink", ignore = true)
+    @Mapping(target = "thumbnailName", expression = "java(thumbnailName(post))")
     PostDto toDto(Post post);
 
     @Mapping(target = "createdAt", expression = "java(LocalDateTime.now())")
     @Mapping(target = "user", ignore = true)
+    @Mapping(target = "imageVariants", ignore = true)
     Post toEntity(PostDto postDto);
 
     List<PostDto> toListDto(List<Post> posts);
 
+    default String thumbnailName(Post post) {
+        ImageVariant thumbnail = post.getImageVariants() == null ? null : post.getImageVariants().get(THUMBNAIL);
+        return thumbnail != null ? thumbnail.getImageName() : post.getImageName();
+    }
+
 }
@@ -0,0 +1,43 @@
+package com.utochkin.kafkaproducerforsma.mappers;
+
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
+import com.utochkin.kafkaproducerforsma.models.PostOutbox;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+
+import java.time.LocalDateTime;
+
+@Mapper(componentModel = "spring", imports = {
+        LocalDateTime.class
+})
+public interface PostOutboxMapper {
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "eventType", expression = "java(eventType)")
+    @Mapping(target = "userId", expression = "java(userId)")
+    @Mapping(target = "postId", source = "postDto.id")
+    @Mapping(target = "postCreatedAt", source = "postDto.createdAt")
+    @Mapping(target = "createdAt", expression = "java(LocalDateTime.now())")
+    @Mapping(target = "availableAt", expression = "java(LocalDateTime.now())")
+    @Mapping(target = "publishedAt", ignore = true)
+    PostOutbox toOutbox(PostDto postDto, Long userId, OutboxEventType eventType);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "eventType", ignore = true)
+    @Mapping(target = "userId", ignore = true)
+    @Mapping(target = "postId", ignore = true)
+    @Mapping(target = "postCreatedAt", source = "createdAt")
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "availableAt", ignore = true)
+    @Mapping(target = "publishedAt", ignore = true)
+    void updateOutbox(@MappingTarget PostOutbox postOutbox, PostDto postDto);
+
+    @Mapping(target = "id", source = "postId")
+    @Mapping(target = "createdAt", source = "postCreatedAt")
+    @Mapping(target = "thumbnailLink", ignore = true)
+    @Mapping(target = "thumbnailName", ignore = true)
+    PostDto toDto(PostOutbox postOutbox);
+}
@@ -0,0 +1,30 @@
+package com.utochkin.kafkaproducerforsma.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Setter
+@Getter
+@Entity
+@Builder
+@Table(name = "deleted_posts")
+public class DeletedPost implements Serializable {
+
+    @Id
+    @Column(name = "post_id")
+    private Long postId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "post_created_at")
+    private LocalDateTime postCreatedAt;
+
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+}
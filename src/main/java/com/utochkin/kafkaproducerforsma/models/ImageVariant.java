@@ -0,0 +1,22 @@
+package com.utochkin.kafkaproducerforsma.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Setter
+@Getter
+@Builder
+@Embeddable
+public class ImageVariant implements Serializable {
+
+    @Column(name = "image_name")
+    private String imageName;
+
+    @Column(name = "image_link", length = 512)
+    private String imageLink;
+}
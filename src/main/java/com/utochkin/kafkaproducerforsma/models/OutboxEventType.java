@@ -0,0 +1,5 @@
+package com.utochkin.kafkaproducerforsma.models;
+
+public enum OutboxEventType {
+    POST_CREATED, POST_UPDATED, POST_DELETED
+}
@@ -2,10 +2,13 @@ package com.utochkin.kafkaproducerforsma.models;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 
 @NoArgsConstructor
 @AllArgsConstructor
@@ -39,4 +42,11 @@ public class Post implements Serializable {
     @ManyToOne
     @JoinColumn(name = "user_id")
     private User user;
+
+    @ElementCollection
+    @CollectionTable(name = "post_image_variants", joinColumns = @JoinColumn(name = "post_id"))
+    @MapKeyColumn(name = "variant")
+    @BatchSize(size = 50)
+    @Builder.Default
+    private Map<String, ImageVariant> imageVariants = new HashMap<>();
 }
@@ -0,0 +1,58 @@
+package com.utochkin.kafkaproducerforsma.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Setter
+@Getter
+@Entity
+@Builder
+@Table(name = "post_outbox")
+public class PostOutbox implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(value = EnumType.STRING)
+    @Column(name = "event_type")
+    private OutboxEventType eventType;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "post_id")
+    private Long postId;
+
+    @Column(name = "description")
+    private String description;
+
+    @Column(name = "message")
+    private String message;
+
+    @Column(name = "image_link", length = 512)
+    private String imageLink;
+
+    @Column(name = "image_name")
+    private String imageName;
+
+    @Column(name = "author_name")
+    private String authorName;
+
+    @Column(name = "post_created_at")
+    private LocalDateTime postCreatedAt;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "available_at")
+    private LocalDateTime availableAt;
+
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+}
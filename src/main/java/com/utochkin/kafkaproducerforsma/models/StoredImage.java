@@ -0,0 +1,33 @@
+package com.utochkin.kafkaproducerforsma.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Setter
+@Getter
+@Entity
+@Builder
+@Table(name = "images")
+public class StoredImage implements Serializable {
+
+    @Id
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "ref_count")
+    private Integer refCount;
+
+    @Column(name = "size")
+    private Long size;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,19 @@
+package com.utochkin.kafkaproducerforsma.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "notification.fan-out")
+public class FanOutProperties {
+
+    private boolean enabled = false;
+    private String topic = "topic-notification-follower";
+    private int chunkSize = 1000;
+    private int threads = 2;
+    private int queueCapacity = 1000;
+    private int maxDeferred = 10000;
+
+}
@@ -0,0 +1,21 @@
+package com.utochkin.kafkaproducerforsma.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "feed.cache")
+public class FeedCacheProperties {
+
+    private boolean enabled = false;
+    private Duration ttl = Duration.ofSeconds(30);
+    private Duration versionTtl = Duration.ofDays(1);
+    private int invalidationChunkSize = 1000;
+    private int threads = 1;
+    private int queueCapacity = 10000;
+
+}
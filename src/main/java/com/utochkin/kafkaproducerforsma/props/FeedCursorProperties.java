@@ -0,0 +1,14 @@
+package com.utochkin.kafkaproducerforsma.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "feed.cursor")
+public class FeedCursorProperties {
+
+    private int maxSize = 100;
+
+}
@@ -0,0 +1,17 @@
+package com.utochkin.kafkaproducerforsma.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "feed.delta")
+public class FeedDeltaProperties {
+
+    private int maxLimit = 500;
+    private Duration tombstoneRetention = Duration.ofDays(30);
+
+}
@@ -0,0 +1,18 @@
+package com.utochkin.kafkaproducerforsma.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "feed.push")
+public class FeedPushProperties {
+
+    private boolean enabled = false;
+    private String destination = "/queue/feed";
+    private int chunkSize = 1000;
+    private int threads = 1;
+    private int queueCapacity = 10000;
+
+}
@@ -0,0 +1,26 @@
+package com.utochkin.kafkaproducerforsma.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "feed.ranking")
+public class FeedRankingProperties {
+
+    private boolean enabled = false;
+    private int topN = 200;
+    private int candidateLimit = 1000;
+    private int maxUsers = 10000;
+    private int maxViewedPosts = 100000;
+    private Duration recencyHalfLife = Duration.ofHours(6);
+    private double affinityWeight = 1.0;
+    private double engagementWeight = 0.5;
+    private int chunkSize = 1000;
+    private int threads = 1;
+    private int queueCapacity = 10000;
+
+}
@@ -0,0 +1,22 @@
+package com.utochkin.kafkaproducerforsma.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "feed.warmup")
+public class FeedWarmupProperties {
+
+    private boolean enabled = false;
+    private int maxUsers = 10000;
+    private Duration activeWindow = Duration.ofMinutes(15);
+    private int concurrency = 4;
+    private int queueCapacity = 1000;
+    private int pageSize = 2;
+    private int cursorPageSize = 10;
+
+}
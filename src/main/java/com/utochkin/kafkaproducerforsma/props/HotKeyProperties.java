@@ -0,0 +1,23 @@
+package com.utochkin.kafkaproducerforsma.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "kafka.hot-key")
+public class HotKeyProperties {
+
+    private boolean enabled = true;
+    private long threshold = 1000;
+    private Duration window = Duration.ofSeconds(10);
+    private int sketchWidth = 2048;
+    private int sketchDepth = 4;
+    private int maxTrackedKeys = 100;
+    private Set<String> topics = Set.of("topic-notification-user", "topic-notification-follower");
+
+}
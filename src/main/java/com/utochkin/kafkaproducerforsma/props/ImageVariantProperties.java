@@ -0,0 +1,22 @@
+package com.utochkin.kafkaproducerforsma.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "image.variants")
+public class ImageVariantProperties {
+
+    private boolean enabled = false;
+    private Map<String, Integer> sizes = new LinkedHashMap<>(Map.of("thumbnail", 320));
+    private float quality = 0.8f;
+    private long maxPixels = 40_000_000L;
+    private int threads = 2;
+    private int queueCapacity = 1000;
+
+}
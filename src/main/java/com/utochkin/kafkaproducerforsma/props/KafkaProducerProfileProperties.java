@@ -0,0 +1,18 @@
+package com.utochkin.kafkaproducerforsma.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "kafka.producer-profile")
+public class KafkaProducerProfileProperties {
+
+    private String active;
+    private Map<String, Map<String, String>> profiles = new LinkedHashMap<>();
+
+}
@@ -0,0 +1,32 @@
+package com.utochkin.kafkaproducerforsma.props;
+
+import com.utochkin.kafkaproducerforsma.sender.OverflowPolicy;
+import com.utochkin.kafkaproducerforsma.sender.SenderMode;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "kafka.sender")
+public class KafkaSenderProperties {
+
+    private SenderMode mode = SenderMode.TEMPLATE;
+    private int maxInFlight = 1000;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private Duration blockTimeout = Duration.ofSeconds(5);
+    private Reactive reactive = new Reactive();
+
+    @Data
+    public static class Reactive {
+
+        private int batchSize = 500;
+        private Duration batchWindow = Duration.ofMillis(20);
+        private int concurrency = 4;
+        private int maxRetries = 5;
+        private Duration retryBackoff = Duration.ofMillis(200);
+
+    }
+}
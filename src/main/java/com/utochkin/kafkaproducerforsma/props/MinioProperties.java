@@ -4,6 +4,8 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 @Component
 @Data
 @ConfigurationProperties(prefix = "minio")
@@ -13,5 +15,13 @@ public class MinioProperties {
     private String url;
     private String accessKey;
     private String secretKey;
+    private String region = "us-east-1";
+    private long partSize = 5 * 1024 * 1024;
+    private long maxUploadSize = 10 * 1024 * 1024;
+    private Duration uploadUrlExpiry = Duration.ofMinutes(15);
+    private Duration pendingUploadRetention = Duration.ofDays(1);
+    private Duration linkExpiry = Duration.ofDays(7);
+    private Duration linkRefreshBefore = Duration.ofHours(1);
+    private int linkCacheSize = 100000;
 
 }
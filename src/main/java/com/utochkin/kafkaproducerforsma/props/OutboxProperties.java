@@ -0,0 +1,21 @@
+package com.utochkin.kafkaproducerforsma.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "outbox")
+public class OutboxProperties {
+
+    private int batchSize = 500;
+    private int maxBatchesPerRun = 20;
+    private int maxInFlight = 64;
+    private Duration sendTimeout = Duration.ofSeconds(30);
+    private Duration retention = Duration.ofDays(7);
+    private Duration updateCoalescingWindow = Duration.ofSeconds(5);
+
+}
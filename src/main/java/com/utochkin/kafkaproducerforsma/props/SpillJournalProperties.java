@@ -0,0 +1,21 @@
+package com.utochkin.kafkaproducerforsma.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "kafka.spill-journal")
+public class SpillJournalProperties {
+
+    private boolean enabled = false;
+    private String directory = "spill-journal";
+    private int segmentSize = 16 * 1024 * 1024;
+    private int maxSegments = 64;
+    private int drainBatchSize = 500;
+    private Duration drainTimeout = Duration.ofSeconds(30);
+
+}
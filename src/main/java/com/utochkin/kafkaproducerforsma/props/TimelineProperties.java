@@ -0,0 +1,24 @@
+package com.utochkin.kafkaproducerforsma.props;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "feed.timeline")
+public class TimelineProperties {
+
+    private boolean enabled = false;
+    private int maxSize = 800;
+    private Duration ttl = Duration.ofDays(7);
+    private Duration postTtl = Duration.ofHours(1);
+    private int fanOutChunkSize = 1000;
+    private int celebrityThreshold = 10000;
+    private int celebrityDemoteThreshold = 5000;
+    private int threads = 2;
+    private int queueCapacity = 10000;
+
+}
@@ -0,0 +1,19 @@
+package com.utochkin.kafkaproducerforsma.ranking;
+
+import com.utochkin.kafkaproducerforsma.props.FeedRankingProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+public class AffinitySignal implements RankingSignal {
+
+    private final double weight;
+
+    public AffinitySignal(FeedRankingProperties feedRankingProperties) {
+        this.weight = feedRankingProperties.getAffinityWeight();
+    }
+
+    @Override
+    public double score(RankingContext context, FeedCandidate candidate) {
+        return context.friendIds().contains(candidate.authorId()) ? weight : 0.0;
+    }
+}
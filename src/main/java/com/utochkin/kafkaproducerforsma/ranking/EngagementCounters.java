@@ -0,0 +1,56 @@
+package com.utochkin.kafkaproducerforsma.ranking;
+
+import com.utochkin.kafkaproducerforsma.events.PostChangedEvent;
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
+import com.utochkin.kafkaproducerforsma.props.FeedRankingProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * View counts of at most {@code max-viewed-posts} posts. The map is access ordered and ranking reads the count of every
+ * candidate, so posts that are still in some loaded feed stay and the least recently viewed or ranked one is dropped.
+ */
+@Component
+public class EngagementCounters {
+
+    private final Map<Long, Long> views;
+
+    public EngagementCounters(FeedRankingProperties feedRankingProperties) {
+        this.views = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > feedRankingProperties.getMaxViewedPosts();
+            }
+        };
+    }
+
+    public void recordView(Long postId) {
+        synchronized (views) {
+            views.merge(postId, 1L, Long::sum);
+        }
+    }
+
+    public long views(Long postId) {
+        synchronized (views) {
+            return views.getOrDefault(postId, 0L);
+        }
+    }
+
+    public int size() {
+        synchronized (views) {
+            return views.size();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onPostChanged(PostChangedEvent event) {
+        if (event.type() == OutboxEventType.POST_DELETED) {
+            synchronized (views) {
+                views.remove(event.postId());
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.utochkin.kafkaproducerforsma.ranking;
+
+import com.utochkin.kafkaproducerforsma.props.FeedRankingProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+public class EngagementSignal implements RankingSignal {
+
+    private final EngagementCounters engagementCounters;
+    private final double weight;
+
+    public EngagementSignal(EngagementCounters engagementCounters, FeedRankingProperties feedRankingProperties) {
+        this.engagementCounters = engagementCounters;
+        this.weight = feedRankingProperties.getEngagementWeight();
+    }
+
+    @Override
+    public boolean isStatic() {
+        return false;
+    }
+
+    @Override
+    public double score(RankingContext context, FeedCandidate candidate) {
+        return weight * Math.log1p(engagementCounters.views(candidate.postId()));
+    }
+}
@@ -0,0 +1,4 @@
+package com.utochkin.kafkaproducerforsma.ranking;
+
+public record FeedCandidate(Long postId, Long authorId, long createdAtMillis) {
+}
@@ -0,0 +1,82 @@
+package com.utochkin.kafkaproducerforsma.ranking;
+
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Top {@code capacity} candidates of one user ordered by their static score. Dynamic signals are added only
+ * when a page is read, which sorts at most {@code capacity} entries.
+ */
+public class RankedFeed {
+
+    private static final Comparator<Scored> BY_STATIC_SCORE = Comparator.comparingDouble(Scored::staticScore)
+            .thenComparing(scored -> scored.candidate().postId());
+
+    private final RankingContext context;
+    private final int capacity;
+    private final Map<Long, Scored> byPostId = new HashMap<>();
+    private final TreeSet<Scored> byScore = new TreeSet<>(BY_STATIC_SCORE);
+
+    public RankedFeed(RankingContext context, int capacity) {
+        this.context = context;
+        this.capacity = capacity;
+    }
+
+    public RankingContext getContext() {
+        return context;
+    }
+
+    public synchronized boolean offer(FeedCandidate candidate, double staticScore) {
+        if (byPostId.containsKey(candidate.postId())) {
+            return false;
+        }
+        if (byPostId.size() >= capacity) {
+            Scored lowest = byScore.first();
+            if (lowest.staticScore() >= staticScore) {
+                return false;
+            }
+            byScore.pollFirst();
+            byPostId.remove(lowest.candidate().postId());
+        }
+        Scored scored = new Scored(candidate, staticScore);
+        byScore.add(scored);
+        byPostId.put(candidate.postId(), scored);
+        return true;
+    }
+
+    public synchronized boolean remove(Long postId) {
+        Scored scored = byPostId.remove(postId);
+        return scored != null && byScore.remove(scored);
+    }
+
+    public synchronized int size() {
+        return byPostId.size();
+    }
+
+    public List<Long> top(int offset, int limit, ToDoubleFunction<FeedCandidate> dynamicScore) {
+        Scored[] snapshot;
+        synchronized (this) {
+            snapshot = byScore.toArray(new Scored[0]);
+        }
+        if (offset >= snapshot.length) {
+            return Collections.emptyList();
+        }
+        Ranked[] ranked = new Ranked[snapshot.length];
+        for (int i = 0; i < snapshot.length; i++) {
+            FeedCandidate candidate = snapshot[i].candidate();
+            ranked[i] = new Ranked(candidate.postId(), snapshot[i].staticScore() + dynamicScore.applyAsDouble(candidate));
+        }
+        Arrays.sort(ranked, Comparator.comparingDouble(Ranked::score).thenComparing(Ranked::postId).reversed());
+        List<Long> postIds = new ArrayList<>(Math.min(limit, ranked.length - offset));
+        for (int i = offset; i < ranked.length && postIds.size() < limit; i++) {
+            postIds.add(ranked[i].postId());
+        }
+        return postIds;
+    }
+
+    private record Scored(FeedCandidate candidate, double staticScore) {
+    }
+
+    private record Ranked(Long postId, double score) {
+    }
+}
@@ -0,0 +1,6 @@
+package com.utochkin.kafkaproducerforsma.ranking;
+
+import java.util.Set;
+
+public record RankingContext(Long userId, Set<Long> friendIds) {
+}
@@ -0,0 +1,15 @@
+package com.utochkin.kafkaproducerforsma.ranking;
+
+/**
+ * One term of the feed score. Scores are in log space and are summed, so a signal multiplies the weight of a post
+ * by {@code e^score}. Static signals are computed once when a post enters the ranked feed of a user,
+ * dynamic ones on every read.
+ */
+public interface RankingSignal {
+
+    default boolean isStatic() {
+        return true;
+    }
+
+    double score(RankingContext context, FeedCandidate candidate);
+}
@@ -0,0 +1,24 @@
+package com.utochkin.kafkaproducerforsma.ranking;
+
+import com.utochkin.kafkaproducerforsma.props.FeedRankingProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exponential decay with {@code recency-half-life}. {@code log(0.5^((now - t) / halfLife))} differs from
+ * {@code t * ln2 / halfLife} by a term that is the same for every post, so the score never has to be recomputed
+ * as time goes by.
+ */
+@Component
+public class RecencySignal implements RankingSignal {
+
+    private final double perMillis;
+
+    public RecencySignal(FeedRankingProperties feedRankingProperties) {
+        this.perMillis = Math.log(2) / feedRankingProperties.getRecencyHalfLife().toMillis();
+    }
+
+    @Override
+    public double score(RankingContext context, FeedCandidate candidate) {
+        return candidate.createdAtMillis() * perMillis;
+    }
+}
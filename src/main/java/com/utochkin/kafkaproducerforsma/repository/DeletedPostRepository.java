@@ -0,0 +1,28 @@
+package com.utochkin.kafkaproducerforsma.repository;
+
+import com.utochkin.kafkaproducerforsma.models.DeletedPost;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DeletedPostRepository extends JpaRepository<DeletedPost, Long> {
+
+    // keyset over (deleted_at, post_id): tombstones sharing the deleted_at of the last one returned are neither skipped nor repeated
+    @Query(value = "SELECT d.post_id AS postId, d.deleted_at AS deletedAt FROM deleted_posts d JOIN followers f ON d.user_id = f.user_id WHERE f.follower_id = ?1 AND (d.deleted_at, d.post_id) > (?2, ?3) ORDER BY d.deleted_at, d.post_id LIMIT ?4", nativeQuery = true)
+    List<Tombstone> getTombstonesSince(Long userId, LocalDateTime since, long afterPostId, int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM deleted_posts WHERE deleted_at < ?1", nativeQuery = true)
+    int deleteDeletedBefore(LocalDateTime before);
+
+    interface Tombstone {
+        Long getPostId();
+
+        LocalDateTime getDeletedAt();
+    }
+}
@@ -0,0 +1,43 @@
+package com.utochkin.kafkaproducerforsma.repository;
+
+
+import com.utochkin.kafkaproducerforsma.models.PostOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PostOutboxRepository extends JpaRepository<PostOutbox, Long> {
+
+    @Query(value = "SELECT * FROM post_outbox o WHERE o.published_at IS NULL AND o.available_at <= ?2 ORDER BY o.id LIMIT ?1 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<PostOutbox> lockPendingEvents(int limit, LocalDateTime availableBefore);
+
+    @Query(value = "SELECT * FROM post_outbox o WHERE o.post_id = ?1 AND o.event_type = 'POST_UPDATED' AND o.published_at IS NULL ORDER BY o.id DESC LIMIT 1 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<PostOutbox> lockPendingUpdate(Long postId);
+
+    // rows locked by the relay are left to it, it skips updates of deleted posts
+    @Modifying
+    @Query(value = "DELETE FROM post_outbox WHERE id IN (SELECT o.id FROM post_outbox o WHERE o.post_id = ?1 AND o.event_type = 'POST_UPDATED' AND o.published_at IS NULL FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int deletePendingUpdates(Long postId);
+
+    @Query(value = "SELECT DISTINCT o.post_id FROM post_outbox o WHERE o.event_type = 'POST_DELETED' AND o.post_id IN (?1)", nativeQuery = true)
+    List<Long> getDeletedPostIds(Collection<Long> postIds);
+
+    @Modifying
+    @Query(value = "UPDATE post_outbox SET published_at = ?2 WHERE id IN (?1)", nativeQuery = true)
+    int markPublished(List<Long> ids, LocalDateTime publishedAt);
+
+    @Modifying
+    @Query(value = "UPDATE post_outbox SET published_at = NULL WHERE created_at >= ?1 AND published_at IS NOT NULL", nativeQuery = true)
+    int resetPublishedSince(LocalDateTime since);
+
+    @Modifying
+    @Query(value = "DELETE FROM post_outbox WHERE published_at < ?1", nativeQuery = true)
+    int deletePublishedBefore(LocalDateTime before);
+}
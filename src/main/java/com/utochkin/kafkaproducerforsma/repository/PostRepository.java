@@ -4,13 +4,45 @@ package com.utochkin.kafkaproducerforsma.repository;
 import com.utochkin.kafkaproducerforsma.models.Post;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
 
     @Query(value = "SELECT p.id, p.description, p.message, p.image_link, p.image_name, p.created_at, p.user_id FROM posts p JOIN followers f ON p.user_id = f.user_id  JOIN users u ON u.id = f.follower_id WHERE u.id = ?1", nativeQuery = true)
     Page<Post> getLastPostsFollowers(Long userId, Pageable pageable);
+
+    @Query(value = "SELECT p.id, p.description, p.message, p.image_link, p.image_name, p.created_at, p.user_id FROM posts p JOIN followers f ON p.user_id = f.user_id WHERE f.follower_id = ?1 ORDER BY p.created_at DESC, p.id DESC", nativeQuery = true)
+    Slice<Post> getFeedSlice(Long userId, Pageable pageable);
+
+    @Query(value = "SELECT p.id, p.description, p.message, p.image_link, p.image_name, p.created_at, p.user_id FROM posts p JOIN followers f ON p.user_id = f.user_id WHERE f.follower_id = ?1 AND (p.created_at, p.id) < (?2, ?3) ORDER BY p.created_at DESC, p.id DESC", nativeQuery = true)
+    Slice<Post> getFeedSliceAfter(Long userId, LocalDateTime createdAt, Long id, Pageable pageable);
+
+    @Query(value = "SELECT p.id, p.description, p.message, p.image_link, p.image_name, p.created_at, p.user_id FROM posts p JOIN followers f ON p.user_id = f.user_id WHERE f.follower_id = ?1 AND (p.created_at, p.id) > (?2, ?3) ORDER BY p.created_at, p.id", nativeQuery = true)
+    Slice<Post> getFeedSliceSince(Long userId, LocalDateTime createdAt, Long id, Pageable pageable);
+
+    @Query(value = "SELECT p.id AS id, CAST(EXTRACT(EPOCH FROM p.created_at) * 1000 AS bigint) AS score FROM posts p JOIN followers f ON p.user_id = f.user_id WHERE f.follower_id = ?1 ORDER BY p.created_at DESC, p.id DESC LIMIT ?2", nativeQuery = true)
+    List<TimelineEntry> getLastPostIdsFollowers(Long userId, int limit);
+
+    @Query(value = "SELECT p.id AS id, CAST(EXTRACT(EPOCH FROM p.created_at) * 1000 AS bigint) AS score FROM posts p WHERE p.user_id = ?1 ORDER BY p.created_at DESC, p.id DESC LIMIT ?2", nativeQuery = true)
+    List<TimelineEntry> getLastPostIdsOfAuthor(Long userId, int limit);
+
+    @Query(value = "SELECT p.id AS id, CAST(p.user_id AS bigint) AS authorId, CAST(EXTRACT(EPOCH FROM p.created_at) * 1000 AS bigint) AS score FROM posts p JOIN followers f ON p.user_id = f.user_id WHERE f.follower_id = ?1 ORDER BY p.created_at DESC, p.id DESC LIMIT ?2", nativeQuery = true)
+    List<CandidateEntry> getFeedCandidates(Long userId, int limit);
+
+    interface TimelineEntry {
+        Long getId();
+
+        Long getScore();
+    }
+
+    interface CandidateEntry extends TimelineEntry {
+        Long getAuthorId();
+    }
 }
@@ -0,0 +1,28 @@
+package com.utochkin.kafkaproducerforsma.repository;
+
+import com.utochkin.kafkaproducerforsma.models.StoredImage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface StoredImageRepository extends JpaRepository<StoredImage, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO images (name, ref_count, size, content_type, created_at) VALUES (?1, 1, ?2, ?3, now()) ON CONFLICT (name) DO UPDATE SET ref_count = images.ref_count + 1", nativeQuery = true)
+    void acquire(String name, long size, String contentType);
+
+    @Query(value = "SELECT ref_count FROM images WHERE name = ?1", nativeQuery = true)
+    Optional<Integer> getRefCount(String name);
+
+    @Modifying
+    @Query(value = "UPDATE images SET ref_count = ref_count - 1 WHERE name = ?1", nativeQuery = true)
+    int release(String name);
+
+    @Modifying
+    @Query(value = "DELETE FROM images WHERE name = ?1 AND ref_count <= 0", nativeQuery = true)
+    int deleteUnreferenced(String name);
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +16,22 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Query(value = "SELECT f.name FROM users f WHERE f.role = 'ROLE_ADMIN'", nativeQuery = true)
     List<String> getAllNameAdmins();
+
+    @Query(value = "SELECT CAST(f.follower_id AS bigint) FROM followers f WHERE f.user_id = ?1 AND f.follower_id > ?2 ORDER BY f.follower_id LIMIT ?3", nativeQuery = true)
+    List<Long> getFollowerIdsAfter(Long userId, Long afterFollowerId, int limit);
+
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 FROM followers f WHERE f.user_id = ?1 LIMIT ?2) limited", nativeQuery = true)
+    long countFollowersUpTo(Long userId, int limit);
+
+    @Query(value = "SELECT CAST(f.user_id AS bigint) FROM followers f WHERE f.follower_id = ?1 AND f.user_id IN (?2)", nativeQuery = true)
+    List<Long> getFollowedAmong(Long followerId, Collection<Long> userIds);
+
+    @Query(value = "SELECT CAST(f.follower_id AS bigint) FROM followers f WHERE f.user_id = ?1 AND f.follower_id IN (?2)", nativeQuery = true)
+    List<Long> getFollowerIdsAmong(Long userId, Collection<Long> followerIds);
+
+    @Query(value = "SELECT CAST(f.friend_id AS bigint) FROM friends f WHERE f.user_id = ?1", nativeQuery = true)
+    List<Long> getFriendIds(Long userId);
+
+    @Query(value = "SELECT u.name FROM users u JOIN followers f ON f.follower_id = u.id WHERE f.user_id = ?1 AND u.name IN (?2)", nativeQuery = true)
+    List<String> getFollowerNamesAmong(Long userId, Collection<String> names);
 }
@@ -0,0 +1,65 @@
+package com.utochkin.kafkaproducerforsma.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Authenticates STOMP sessions with the same bearer token as the REST API, sent in the {@code Authorization}
+ * header of the CONNECT frame. Sessions without a token stay anonymous and can only use broadcast destinations.
+ * Per-user queues are written only by the server, a client frame sent to them is rejected.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Lazy))
+public class JwtChannelInterceptor implements ChannelInterceptor {
+
+    private static final String BEARER = "Bearer ";
+
+    private final JwtTokenProvider jwtTokenProvider;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            String bearerToken = accessor.getFirstNativeHeader("Authorization");
+            if (bearerToken != null && bearerToken.startsWith(BEARER)) {
+                String token = bearerToken.substring(BEARER.length());
+                try {
+                    if (!jwtTokenProvider.validateToken(token)) {
+                        throw new MessageDeliveryException("Access token expired");
+                    }
+                    accessor.setUser(jwtTokenProvider.getAuthentication(token));
+                } catch (MessageDeliveryException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    throw new MessageDeliveryException("Invalid access token");
+                }
+            }
+        }
+        if (StompCommand.SEND.equals(accessor.getCommand()) && isServerOnly(accessor.getDestination())) {
+            // otherwise any session could put forged frames into the feed of another user
+            throw new MessageDeliveryException("Sending to " + accessor.getDestination() + " is not allowed");
+        }
+        if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())
+                && accessor.getDestination() != null
+                && accessor.getDestination().startsWith("/queue")) {
+            // per-user queues are reachable only through /user/queue/..., which resolves to the own session
+            throw new MessageDeliveryException("Subscribe to /user" + accessor.getDestination() + " instead");
+        }
+        return message;
+    }
+
+    private static boolean isServerOnly(String destination) {
+        return destination != null && (destination.startsWith("/user") || destination.startsWith("/queue"));
+    }
+}
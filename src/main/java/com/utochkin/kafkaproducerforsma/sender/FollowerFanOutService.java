@@ -0,0 +1,112 @@
+package com.utochkin.kafkaproducerforsma.sender;
+
+import com.utochkin.kafkaproducerforsma.config.ExecutorConfig;
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.props.FanOutProperties;
+import com.utochkin.kafkaproducerforsma.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends a created post to every follower of its author, {@code chunk-size} followers at a time by keyset over the
+ * follower id. Fan-outs that do not fit into the pool queue are deferred and run by the next worker that gets free,
+ * never on the calling outbox relay thread.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "notification.fan-out", name = "enabled", havingValue = "true")
+public class FollowerFanOutService {
+
+    private final UserRepository userRepository;
+    private final KafkaSenderService kafkaSenderService;
+    private final FanOutProperties fanOutProperties;
+    private final Executor executor;
+    private final Queue<PendingFanOut> deferred = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger deferredCount = new AtomicInteger();
+
+    public FollowerFanOutService(UserRepository userRepository,
+                                 KafkaSenderService kafkaSenderService,
+                                 FanOutProperties fanOutProperties,
+                                 @Qualifier(ExecutorConfig.FAN_OUT_EXECUTOR) Executor executor) {
+        this.userRepository = userRepository;
+        this.kafkaSenderService = kafkaSenderService;
+        this.fanOutProperties = fanOutProperties;
+        this.executor = executor;
+    }
+
+    public void fanOut(PostDto post, Long authorId) {
+        PendingFanOut fanOut = new PendingFanOut(post, authorId);
+        try {
+            executor.execute(() -> run(fanOut));
+        } catch (RejectedExecutionException e) {
+            defer(fanOut);
+        }
+    }
+
+    private void defer(PendingFanOut fanOut) {
+        if (deferredCount.incrementAndGet() > fanOutProperties.getMaxDeferred()) {
+            deferredCount.decrementAndGet();
+            log.warn("Fan-out of post with id = {} dropped, {} fan-outs already deferred.", fanOut.post().getId(), fanOutProperties.getMaxDeferred());
+            return;
+        }
+        deferred.add(fanOut);
+    }
+
+    private void run(PendingFanOut fanOut) {
+        // the pool queue was full when a fan-out was deferred, so a queued task always finishes after it and picks it up
+        for (PendingFanOut next = fanOut; next != null; next = pollDeferred()) {
+            try {
+                fanOutToFollowers(next.post(), next.authorId());
+            } catch (Exception e) {
+                log.warn("Fan-out of post with id = {} failed: {}", next.post().getId(), e.getMessage());
+            }
+        }
+    }
+
+    private PendingFanOut pollDeferred() {
+        PendingFanOut next = deferred.poll();
+        if (next != null) {
+            deferredCount.decrementAndGet();
+        }
+        return next;
+    }
+
+    void fanOutToFollowers(PostDto post, Long authorId) {
+        AtomicInteger failed = new AtomicInteger();
+        long lastFollowerId = 0L;
+        int sent = 0;
+        List<Long> followerIds;
+        do {
+            followerIds = userRepository.getFollowerIdsAfter(authorId, lastFollowerId, fanOutProperties.getChunkSize());
+            CompletableFuture<?>[] chunk = followerIds.stream()
+                    .map(followerId -> kafkaSenderService.send(fanOutProperties.getTopic(), followerId, post)
+                            .whenComplete((result, ex) -> {
+                                if (ex != null) {
+                                    failed.incrementAndGet();
+                                }
+                            }))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(chunk).exceptionally(ex -> null).join();
+            sent += followerIds.size();
+            if (!followerIds.isEmpty()) {
+                lastFollowerId = followerIds.get(followerIds.size() - 1);
+            }
+        } while (followerIds.size() == fanOutProperties.getChunkSize());
+
+        if (failed.get() > 0) {
+            log.warn("Post with id = {} fanned out to {} followers, {} notifications failed.", post.getId(), sent, failed.get());
+        } else {
+            log.info("Post with id = {} fanned out to {} followers.", post.getId(), sent);
+        }
+    }
+
+    private record PendingFanOut(PostDto post, Long authorId) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.utochkin.kafkaproducerforsma.sender;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.utils.Utils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HotKeyPartitioner implements Partitioner {
+
+    public static final String TRACKER_CONFIG = "hot-key.tracker";
+
+    private final AtomicInteger spreadCounter = new AtomicInteger();
+    private HotKeyTracker hotKeyTracker;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object tracker = configs.get(TRACKER_CONFIG);
+        if (!(tracker instanceof HotKeyTracker)) {
+            throw new IllegalStateException(TRACKER_CONFIG + " must reference a HotKeyTracker instance");
+        }
+        this.hotKeyTracker = (HotKeyTracker) tracker;
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int numPartitions = cluster.partitionsForTopic(topic).size();
+        if (keyBytes == null) {
+            return Utils.toPositive(spreadCounter.getAndIncrement()) % numPartitions;
+        }
+        if (key instanceof Long userId && hotKeyTracker.tracks(topic) && hotKeyTracker.recordAndCheck(userId)) {
+            List<PartitionInfo> available = cluster.availablePartitionsForTopic(topic);
+            int next = Utils.toPositive(spreadCounter.getAndIncrement());
+            return available.isEmpty()
+                    ? next % numPartitions
+                    : available.get(next % available.size()).partition();
+        }
+        return Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,106 @@
+package com.utochkin.kafkaproducerforsma.sender;
+
+import com.utochkin.kafkaproducerforsma.props.HotKeyProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch of per-key send rates. Counters are halved once per window, so an estimate
+ * approximates the number of sends of a key during the last window; keys whose estimate reaches
+ * the threshold are reported as hot. Only keys of the configured topics are tracked; keyed state topics
+ * such as the compacted post-state topic must keep every key on a single partition.
+ */
+@Component
+public class HotKeyTracker {
+
+    private final int width;
+    private final int depth;
+    private final long threshold;
+    private final long windowNanos;
+    private final int maxTrackedKeys;
+    private final Set<String> topics;
+    private final AtomicLongArray counters;
+    private final AtomicLong windowStart;
+    private final Map<Long, Long> hotKeys = new ConcurrentHashMap<>();
+
+    public HotKeyTracker(HotKeyProperties hotKeyProperties, MeterRegistry meterRegistry) {
+        this.width = hotKeyProperties.getSketchWidth();
+        this.depth = hotKeyProperties.getSketchDepth();
+        this.threshold = hotKeyProperties.getThreshold();
+        this.windowNanos = hotKeyProperties.getWindow().toNanos();
+        this.maxTrackedKeys = hotKeyProperties.getMaxTrackedKeys();
+        this.topics = Set.copyOf(hotKeyProperties.getTopics());
+        this.counters = new AtomicLongArray(width * depth);
+        this.windowStart = new AtomicLong(System.nanoTime());
+        Gauge.builder("kafka.partitioner.hot-keys", hotKeys, Map::size).register(meterRegistry);
+    }
+
+    public boolean tracks(String topic) {
+        return topics.contains(topic);
+    }
+
+    public boolean recordAndCheck(Long key) {
+        decayIfWindowElapsed();
+        long hash = mix(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(hash, row)));
+        }
+        if (estimate < threshold) {
+            return false;
+        }
+        if (hotKeys.containsKey(key) || hotKeys.size() < maxTrackedKeys) {
+            hotKeys.put(key, estimate);
+        }
+        return true;
+    }
+
+    public long estimate(Long key) {
+        long hash = mix(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    public Map<Long, Long> getHotKeys() {
+        return Map.copyOf(hotKeys);
+    }
+
+    void decayIfWindowElapsed() {
+        long start = windowStart.get();
+        long now = System.nanoTime();
+        if (now - start < windowNanos || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.updateAndGet(i, value -> value >>> 1);
+        }
+        hotKeys.replaceAll((key, value) -> estimate(key));
+        hotKeys.values().removeIf(value -> value < threshold);
+    }
+
+    private int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return row * width + Math.floorMod(h1 + row * h2, width);
+    }
+
+    private static long mix(Long key) {
+        long h = key == null ? 0L : key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -1,16 +1,212 @@
 package com.utochkin.kafkaproducerforsma.sender;
 
 import com.utochkin.kafkaproducerforsma.dto.PostDto;
-import lombok.RequiredArgsConstructor;
+import com.utochkin.kafkaproducerforsma.exceptions.NotificationOverflowException;
+import com.utochkin.kafkaproducerforsma.props.KafkaSenderProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.BufferExhaustedException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Sends records with a bounded number in flight. Records of {@link #send(String, Long, Object)} that can not be handed
+ * to the producer are spilled, and while spilled records wait for replay new ones are appended behind them so that
+ * they reach the broker in order. Outbox records ({@link #send(PostDto, Long)}, {@link #sendPostState}) are never
+ * spilled: the outbox row is their durable copy, so they fail instead and are relayed again once the journal is drained.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class KafkaSenderService {
+    public static final String NOTIFICATION_TOPIC = "topic-notification-user";
+    public static final String POST_STATE_TOPIC = "topic-post-state";
+
     private final KafkaTemplate<Long, Object> kafkaTemplate;
+    private final KafkaSenderProperties kafkaSenderProperties;
+    private final ObjectProvider<NotificationSpillHandler> spillHandler;
+    private final ReactiveNotificationPublisher reactivePublisher;
+    private final Semaphore inFlight;
+    private final Timer sendLatency;
+    private final Counter sendFailures;
+    private final Counter bufferExhausted;
+    private final Counter spilled;
+    private final Counter shed;
+
+    public KafkaSenderService(KafkaTemplate<Long, Object> kafkaTemplate,
+                              KafkaSenderProperties kafkaSenderProperties,
+                              ObjectProvider<NotificationSpillHandler> spillHandler,
+                              ObjectProvider<ReactiveNotificationPublisher> reactivePublisher,
+                              MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.kafkaSenderProperties = kafkaSenderProperties;
+        this.spillHandler = spillHandler;
+        this.reactivePublisher = reactivePublisher.getIfAvailable();
+        this.inFlight = new Semaphore(kafkaSenderProperties.getMaxInFlight());
+        this.sendLatency = Timer.builder("kafka.sender.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.sendFailures = meterRegistry.counter("kafka.sender.failures");
+        this.bufferExhausted = meterRegistry.counter("kafka.sender.buffer.exhausted");
+        this.spilled = meterRegistry.counter("kafka.sender.overflow", "policy", "spill");
+        this.shed = meterRegistry.counter("kafka.sender.overflow", "policy", "shed");
+        Gauge.builder("kafka.sender.in-flight", inFlight,
+                        semaphore -> kafkaSenderProperties.getMaxInFlight() - semaphore.availablePermits())
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<SendResult<Long, Object>> send(PostDto post, Long userId) {
+        return send(NOTIFICATION_TOPIC, userId, post, false);
+    }
+
+    public CompletableFuture<SendResult<Long, Object>> sendPostState(Long postId, PostDto post) {
+        return send(POST_STATE_TOPIC, postId, post, false);
+    }
+
+    public CompletableFuture<SendResult<Long, Object>> send(String topic, Long key, Object value,
+                                                            BiConsumer<SendResult<Long, Object>, Throwable> callback) {
+        return send(topic, key, value).whenComplete(callback);
+    }
+
+    public CompletableFuture<SendResult<Long, Object>> send(String topic, Long key, Object value) {
+        return send(topic, key, value, true);
+    }
+
+    private CompletableFuture<SendResult<Long, Object>> send(String topic, Long key, Object value, boolean spillable) {
+        NotificationSpillHandler handler = spillHandler();
+        if (handler != null) {
+            CompletableFuture<SendResult<Long, Object>> behindJournal = behindJournal(handler, topic, key, value, spillable);
+            if (behindJournal != null) {
+                return behindJournal;
+            }
+        }
+        if (!acquire()) {
+            return overflow(topic, key, value, spillable);
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<SendResult<Long, Object>> future;
+        try {
+            future = reactivePublisher != null
+                    ? reactivePublisher.publish(topic, key, value)
+                    : kafkaTemplate.send(topic, key, value);
+        } catch (Exception e) {
+            inFlight.release();
+            recordFailure(e);
+            return spillable && spill(topic, key, value) ? CompletableFuture.completedFuture(null) : CompletableFuture.failedFuture(e);
+        }
+        return future.handle((result, ex) -> {
+            inFlight.release();
+            sendLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (ex == null) {
+                return result;
+            }
+            recordFailure(ex);
+            if (spillable && isProducerUnavailable(ex) && spill(topic, key, value)) {
+                return null;
+            }
+            throw ex instanceof CompletionException completionException
+                    ? completionException
+                    : new CompletionException(ex);
+        });
+    }
+
+    public int getInFlight() {
+        return kafkaSenderProperties.getMaxInFlight() - inFlight.availablePermits();
+    }
+
+    private boolean acquire() {
+        if (kafkaSenderProperties.getOverflowPolicy() != OverflowPolicy.BLOCK || reactivePublisher != null) {
+            return inFlight.tryAcquire();
+        }
+        try {
+            return inFlight.tryAcquire(kafkaSenderProperties.getBlockTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private CompletableFuture<SendResult<Long, Object>> behindJournal(NotificationSpillHandler handler, String topic, Long key,
+                                                                      Object value, boolean spillable) {
+        if (!spillable) {
+            return handler.hasPending()
+                    ? CompletableFuture.failedFuture(new NotificationOverflowException(
+                    String.format("Error: spilled records are being replayed, record for topic %s with key = %s deferred", topic, key)))
+                    : null;
+        }
+        try {
+            if (!handler.spillIfPending(topic, key, value)) {
+                return null;
+            }
+            spilled.increment();
+            return CompletableFuture.completedFuture(null);
+        } catch (NotificationOverflowException e) {
+            // sending directly would overtake the records already in the journal
+            shed.increment();
+            log.warn("Record for topic {} with key = {} not spilled: {}", topic, key, e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<SendResult<Long, Object>> overflow(String topic, Long key, Object value, boolean spillable) {
+        bufferExhausted.increment();
+        if (spillable && spill(topic, key, value)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        shed.increment();
+        return CompletableFuture.failedFuture(new NotificationOverflowException(
+                String.format("Error: %d records in flight, record for topic %s with key = %s rejected",
+                        kafkaSenderProperties.getMaxInFlight(), topic, key)));
+    }
+
+    private NotificationSpillHandler spillHandler() {
+        return kafkaSenderProperties.getOverflowPolicy() == OverflowPolicy.SPILL ? spillHandler.getIfAvailable() : null;
+    }
+
+    private boolean spill(String topic, Long key, Object value) {
+        NotificationSpillHandler handler = spillHandler();
+        if (handler == null) {
+            return false;
+        }
+        try {
+            handler.spill(topic, key, value);
+            spilled.increment();
+            return true;
+        } catch (NotificationOverflowException e) {
+            log.warn("Record for topic {} with key = {} not spilled: {}", topic, key, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isProducerUnavailable(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-    public void send(PostDto post, Long userId) {
-        kafkaTemplate.send("topic-notification-user", userId, post);
+    private void recordFailure(Throwable ex) {
+        sendFailures.increment();
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BufferExhaustedException) {
+                bufferExhausted.increment();
+                break;
+            }
+        }
+        log.warn("Kafka send failed: {}", ex.getMessage());
     }
 }
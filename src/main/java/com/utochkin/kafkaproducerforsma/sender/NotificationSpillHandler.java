@@ -0,0 +1,13 @@
+package com.utochkin.kafkaproducerforsma.sender;
+
+public interface NotificationSpillHandler {
+
+    void spill(String topic, Long key, Object value);
+
+    boolean hasPending();
+
+    /**
+     * Appends the record only while earlier records are still waiting for replay, so that it is not sent ahead of them.
+     */
+    boolean spillIfPending(String topic, Long key, Object value);
+}
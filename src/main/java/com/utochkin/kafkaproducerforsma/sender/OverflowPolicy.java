@@ -0,0 +1,5 @@
+package com.utochkin.kafkaproducerforsma.sender;
+
+public enum OverflowPolicy {
+    BLOCK, SHED, SPILL
+}
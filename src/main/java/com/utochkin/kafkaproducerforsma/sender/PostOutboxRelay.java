@@ -0,0 +1,137 @@
+package com.utochkin.kafkaproducerforsma.sender;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.mappers.PostOutboxMapper;
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
+import com.utochkin.kafkaproducerforsma.models.PostOutbox;
+import com.utochkin.kafkaproducerforsma.props.OutboxProperties;
+import com.utochkin.kafkaproducerforsma.repository.PostOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PostOutboxRelay {
+
+    private final PostOutboxRepository postOutboxRepository;
+    private final PostOutboxMapper postOutboxMapper;
+    private final KafkaSenderService kafkaSenderService;
+    private final OutboxProperties outboxProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<FollowerFanOutService> followerFanOutService;
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval:1000}")
+    public void relay() {
+        for (int i = 0; i < outboxProperties.getMaxBatchesPerRun(); i++) {
+            List<PostOutbox> published = transactionTemplate.execute(status -> relayBatch());
+            if (published == null) {
+                return;
+            }
+            fanOut(published);
+            if (published.size() < outboxProperties.getBatchSize()) {
+                return;
+            }
+        }
+    }
+
+    @Scheduled(cron = "${outbox.cleanup-cron:0 0 * * * *}")
+    public void cleanup() {
+        LocalDateTime before = LocalDateTime.now().minus(outboxProperties.getRetention());
+        Integer deleted = transactionTemplate.execute(status -> postOutboxRepository.deletePublishedBefore(before));
+        log.info("{} published outbox events older than {} deleted.", deleted, before);
+    }
+
+    List<PostOutbox> relayBatch() {
+        List<PostOutbox> batch = postOutboxRepository.lockPendingEvents(outboxProperties.getBatchSize(), LocalDateTime.now());
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+
+        Semaphore inFlight = new Semaphore(outboxProperties.getMaxInFlight());
+        List<PostOutbox> published = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<?>> futures = new ArrayList<>(batch.size());
+        Set<Long> deletedPostIds = deletedPostIds(batch);
+        for (PostOutbox event : batch) {
+            if (event.getEventType() == OutboxEventType.POST_UPDATED && deletedPostIds.contains(event.getPostId())) {
+                // superseded by the tombstone of the post, marked published without sending
+                published.add(event);
+                continue;
+            }
+            inFlight.acquireUninterruptibly();
+            try {
+                futures.add(publish(event)
+                        .whenComplete((result, ex) -> {
+                            inFlight.release();
+                            if (ex == null) {
+                                published.add(event);
+                            } else {
+                                log.warn("Outbox event with id = {} not published: {}", event.getId(), ex.getMessage());
+                            }
+                        }));
+            } catch (Exception e) {
+                inFlight.release();
+                log.warn("Outbox relay stopped, broker unavailable: {}", e.getMessage());
+                break;
+            }
+        }
+
+        awaitAll(futures);
+        List<PostOutbox> acknowledged = List.copyOf(published);
+        if (!acknowledged.isEmpty()) {
+            postOutboxRepository.markPublished(acknowledged.stream().map(PostOutbox::getId).toList(), LocalDateTime.now());
+        }
+        return acknowledged;
+    }
+
+    private Set<Long> deletedPostIds(List<PostOutbox> batch) {
+        List<Long> updatedPostIds = batch.stream()
+                .filter(event -> event.getEventType() == OutboxEventType.POST_UPDATED)
+                .map(PostOutbox::getPostId)
+                .distinct()
+                .toList();
+        return updatedPostIds.isEmpty() ? Set.of() : Set.copyOf(postOutboxRepository.getDeletedPostIds(updatedPostIds));
+    }
+
+    private CompletableFuture<Void> publish(PostOutbox event) {
+        if (event.getEventType() == OutboxEventType.POST_DELETED) {
+            return kafkaSenderService.sendPostState(event.getPostId(), null).thenAccept(result -> {
+            });
+        }
+        PostDto post = postOutboxMapper.toDto(event);
+        return CompletableFuture.allOf(
+                kafkaSenderService.send(post, event.getUserId()),
+                kafkaSenderService.sendPostState(event.getPostId(), post));
+    }
+
+    private void fanOut(List<PostOutbox> published) {
+        FollowerFanOutService fanOutService = followerFanOutService.getIfAvailable();
+        if (fanOutService == null) {
+            return;
+        }
+        published.stream()
+                .filter(event -> event.getEventType() == OutboxEventType.POST_CREATED)
+                .forEach(event -> fanOutService.fanOut(postOutboxMapper.toDto(event), event.getUserId()));
+    }
+
+    private void awaitAll(List<CompletableFuture<?>> futures) {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(outboxProperties.getSendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Outbox batch completed with errors: {}", e.getMessage());
+        }
+    }
+}
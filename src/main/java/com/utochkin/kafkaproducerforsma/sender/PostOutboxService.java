@@ -0,0 +1,55 @@
+package com.utochkin.kafkaproducerforsma.sender;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.mappers.PostOutboxMapper;
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
+import com.utochkin.kafkaproducerforsma.models.PostOutbox;
+import com.utochkin.kafkaproducerforsma.props.OutboxProperties;
+import com.utochkin.kafkaproducerforsma.repository.PostOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostOutboxService {
+
+    private final PostOutboxRepository postOutboxRepository;
+    private final PostOutboxMapper postOutboxMapper;
+    private final OutboxProperties outboxProperties;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(PostDto post, Long userId, OutboxEventType eventType) {
+        if (eventType != OutboxEventType.POST_UPDATED || outboxProperties.getUpdateCoalescingWindow().isZero()) {
+            postOutboxRepository.save(postOutboxMapper.toOutbox(post, userId, eventType));
+            return;
+        }
+
+        Optional<PostOutbox> pendingUpdate = postOutboxRepository.lockPendingUpdate(post.getId());
+        if (pendingUpdate.isPresent()) {
+            postOutboxMapper.updateOutbox(pendingUpdate.get(), post);
+            return;
+        }
+        PostOutbox update = postOutboxMapper.toOutbox(post, userId, eventType);
+        update.setAvailableAt(update.getCreatedAt().plus(outboxProperties.getUpdateCoalescingWindow()));
+        postOutboxRepository.save(update);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void cancelPendingUpdates(Long postId) {
+        postOutboxRepository.deletePendingUpdates(postId);
+    }
+
+    @Transactional
+    public int replaySince(LocalDateTime since) {
+        int count = postOutboxRepository.resetPublishedSince(since);
+        log.info("{} outbox events created since {} scheduled for replay.", count, since);
+        return count;
+    }
+}
@@ -0,0 +1,148 @@
+package com.utochkin.kafkaproducerforsma.sender;
+
+import com.utochkin.kafkaproducerforsma.exceptions.NotificationOverflowException;
+import com.utochkin.kafkaproducerforsma.props.KafkaSenderProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
+import reactor.util.concurrent.Queues;
+import reactor.util.retry.Retry;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Collects records into batches of {@code batch-size} or whatever arrived within {@code batch-window} and sends up to
+ * {@code concurrency} batches at a time. Batches are only cut on demand, so a window that closes while every batch is
+ * still being sent or retried keeps its records instead of failing the pipeline. Should the pipeline fail anyway,
+ * the records in it are failed and a new one is started.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "kafka.sender", name = "mode", havingValue = "reactive")
+public class ReactiveNotificationPublisher implements DisposableBean {
+
+    private final KafkaSender<Long, Object> sender;
+    private final KafkaSenderProperties kafkaSenderProperties;
+    private final Object lock = new Object();
+    // guarded by lock
+    private Pipeline pipeline;
+    private boolean stopped;
+
+    @Autowired
+    public ReactiveNotificationPublisher(ProducerFactory<Long, Object> producerFactory,
+                                         KafkaSenderProperties kafkaSenderProperties) {
+        this(KafkaSender.create(SenderOptions.<Long, Object>create(producerFactory.getConfigurationProperties())
+                .maxInFlight(kafkaSenderProperties.getMaxInFlight())
+                .stopOnError(false)), kafkaSenderProperties);
+    }
+
+    public ReactiveNotificationPublisher(KafkaSender<Long, Object> sender, KafkaSenderProperties kafkaSenderProperties) {
+        this.sender = sender;
+        this.kafkaSenderProperties = kafkaSenderProperties;
+        synchronized (lock) {
+            this.pipeline = start();
+        }
+    }
+
+    public CompletableFuture<SendResult<Long, Object>> publish(String topic, Long key, Object value) {
+        CompletableFuture<SendResult<Long, Object>> future = new CompletableFuture<>();
+        ProducerRecord<Long, Object> record = new ProducerRecord<>(topic, key, value);
+        Sinks.EmitResult emitResult;
+        synchronized (lock) {
+            Pipeline current = pipeline;
+            current.pending().add(future);
+            future.whenComplete((result, ex) -> current.pending().remove(future));
+            emitResult = current.sink().tryEmitNext(SenderRecord.create(record, new InFlight(record, future)));
+        }
+        if (emitResult.isFailure()) {
+            future.completeExceptionally(new NotificationOverflowException(
+                    String.format("Error: record for topic %s with key = %s rejected (%s)", topic, key, emitResult)));
+        }
+        return future;
+    }
+
+    private Pipeline start() {
+        KafkaSenderProperties.Reactive reactive = kafkaSenderProperties.getReactive();
+        Sinks.Many<SenderRecord<Long, Object, InFlight>> sink = Sinks.many().unicast()
+                .onBackpressureBuffer(Queues.<SenderRecord<Long, Object, InFlight>>get(kafkaSenderProperties.getMaxInFlight()).get());
+        Pipeline started = new Pipeline(sink, ConcurrentHashMap.newKeySet(), new AtomicReference<>());
+        started.subscription().set(sink.asFlux()
+                .bufferTimeout(reactive.getBatchSize(), reactive.getBatchWindow(), true)
+                .flatMap(batch -> sendBatch(batch, reactive), reactive.getConcurrency())
+                .subscribe(null, e -> restart(started, e)));
+        return started;
+    }
+
+    private void restart(Pipeline failed, Throwable e) {
+        log.error("Reactive notification pipeline failed, {} records are failed and the pipeline is restarted: {}",
+                failed.pending().size(), e.getMessage(), e);
+        synchronized (lock) {
+            if (pipeline == failed && !stopped) {
+                pipeline = start();
+            }
+        }
+        failed.pending().forEach(future -> future.completeExceptionally(e));
+    }
+
+    private Mono<Void> sendBatch(List<SenderRecord<Long, Object, InFlight>> batch, KafkaSenderProperties.Reactive reactive) {
+        return Flux.defer(() -> sender.send(Flux.fromStream(batch.stream()
+                        .filter(record -> !record.correlationMetadata().future().isDone()))))
+                .doOnNext(this::complete)
+                .then(Mono.defer(() -> batch.stream().anyMatch(record -> !record.correlationMetadata().future().isDone())
+                        ? Mono.<Void>error(new IllegalStateException("Not all records of the batch were acknowledged"))
+                        : Mono.<Void>empty()))
+                .retryWhen(Retry.backoff(reactive.getMaxRetries(), reactive.getRetryBackoff()))
+                .onErrorResume(e -> {
+                    log.warn("Reactive batch of {} records failed: {}", batch.size(), e.getMessage());
+                    batch.forEach(record -> record.correlationMetadata().future().completeExceptionally(e));
+                    return Mono.empty();
+                });
+    }
+
+    private void complete(SenderResult<InFlight> result) {
+        InFlight inFlight = result.correlationMetadata();
+        if (result.exception() == null) {
+            inFlight.future().complete(new SendResult<>(inFlight.record(), result.recordMetadata()));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        Pipeline current;
+        synchronized (lock) {
+            stopped = true;
+            current = pipeline;
+            current.sink().tryEmitComplete();
+        }
+        Disposable subscription = current.subscription().get();
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        sender.close();
+    }
+
+    private record Pipeline(Sinks.Many<SenderRecord<Long, Object, InFlight>> sink,
+                            Set<CompletableFuture<SendResult<Long, Object>>> pending,
+                            AtomicReference<Disposable> subscription) {
+    }
+
+    record InFlight(ProducerRecord<Long, Object> record, CompletableFuture<SendResult<Long, Object>> future) {
+    }
+}
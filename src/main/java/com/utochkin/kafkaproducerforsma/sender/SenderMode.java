@@ -0,0 +1,5 @@
+package com.utochkin.kafkaproducerforsma.sender;
+
+public enum SenderMode {
+    TEMPLATE, REACTIVE
+}
@@ -0,0 +1,296 @@
+package com.utochkin.kafkaproducerforsma.sender;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.exceptions.NotificationOverflowException;
+import com.utochkin.kafkaproducerforsma.props.SpillJournalProperties;
+import com.utochkin.kafkaproducerforsma.serialization.PostDtoCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of records that could not be handed to the producer. Records are written into
+ * memory-mapped segment files as {@code length:int, crc32:int, payload}; the length is written last, so a
+ * torn record is never visible. Every record is forced to disk before {@link #spill} returns, so a record reported
+ * as spilled survives a crash of the process or the host, at the cost of one page write per spilled record.
+ * The read position is kept in a checkpoint file that is replaced atomically, and fully drained segments are deleted.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "kafka.spill-journal", name = "enabled", havingValue = "true")
+public class SpillJournal implements NotificationSpillHandler, DisposableBean {
+
+    private static final int HEADER_SIZE = 8;
+    private static final String CHECKPOINT = "checkpoint";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final Counter rejected;
+
+    private long writeSegment;
+    private MappedByteBuffer writeBuffer;
+    private long readSegment;
+    private int readPosition;
+    private long mappedReadSegment = -1;
+    private MappedByteBuffer readBuffer;
+
+    public SpillJournal(SpillJournalProperties spillJournalProperties, MeterRegistry meterRegistry) throws IOException {
+        this.directory = Path.of(spillJournalProperties.getDirectory());
+        this.segmentSize = spillJournalProperties.getSegmentSize();
+        this.maxSegments = spillJournalProperties.getMaxSegments();
+        this.rejected = meterRegistry.counter("kafka.spill-journal.rejected");
+        Files.createDirectories(directory);
+
+        List<Long> segments = listSegments();
+        loadCheckpoint(segments.isEmpty() ? 0L : segments.get(0));
+        this.writeSegment = segments.isEmpty() ? readSegment : Math.max(readSegment, segments.get(segments.size() - 1));
+        this.writeBuffer = map(writeSegment);
+        this.writeBuffer.position(scanEnd(writeBuffer, writeSegment == readSegment ? readPosition : 0));
+
+        Gauge.builder("kafka.spill-journal.segments", this, journal -> journal.segmentCount()).register(meterRegistry);
+        log.info("Spill journal opened in {}: segments {}..{}, read position {}.", directory, readSegment, writeSegment, readPosition);
+    }
+
+    @Override
+    public synchronized void spill(String topic, Long key, Object value) {
+        byte[] payload = encode(topic, key, value);
+        int recordSize = HEADER_SIZE + payload.length;
+        if (recordSize + HEADER_SIZE > segmentSize) {
+            rejected.increment();
+            throw new NotificationOverflowException("Error: record is larger than a spill journal segment");
+        }
+        if (writeBuffer.remaining() < recordSize + HEADER_SIZE) {
+            if (writeSegment - readSegment + 1 >= maxSegments) {
+                rejected.increment();
+                throw new NotificationOverflowException("Error: spill journal is full");
+            }
+            writeBuffer.force();
+            writeSegment++;
+            writeBuffer = map(writeSegment);
+        }
+        int start = writeBuffer.position();
+        writeBuffer.putInt(start + 4, crc(payload));
+        writeBuffer.put(start + HEADER_SIZE, payload);
+        writeBuffer.putInt(start, payload.length);
+        writeBuffer.force(start, recordSize);
+        writeBuffer.position(start + recordSize);
+    }
+
+    @Override
+    public synchronized boolean hasPending() {
+        return !isEmpty();
+    }
+
+    @Override
+    public synchronized boolean spillIfPending(String topic, Long key, Object value) {
+        if (isEmpty()) {
+            return false;
+        }
+        spill(topic, key, value);
+        return true;
+    }
+
+    public synchronized List<JournalRecord> read(int maxRecords) {
+        List<JournalRecord> records = new ArrayList<>();
+        long segment = readSegment;
+        int position = readPosition;
+        while (records.size() < maxRecords) {
+            JournalRecord record = readAt(bufferFor(segment), segment, position);
+            if (record == null) {
+                if (segment < writeSegment) {
+                    segment++;
+                    position = 0;
+                    continue;
+                }
+                break;
+            }
+            records.add(record);
+            position = record.nextPosition();
+        }
+        return records;
+    }
+
+    public synchronized void commit(JournalRecord lastDelivered) {
+        long previousSegment = readSegment;
+        readSegment = lastDelivered.segment();
+        readPosition = lastDelivered.nextPosition();
+        writeCheckpoint();
+        for (long segment = previousSegment; segment < readSegment; segment++) {
+            deleteSegment(segment);
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return readSegment == writeSegment && readPosition >= writeBuffer.position();
+    }
+
+    @Override
+    public synchronized void destroy() {
+        writeBuffer.force();
+    }
+
+    private synchronized long segmentCount() {
+        return writeSegment - readSegment + 1;
+    }
+
+    private MappedByteBuffer bufferFor(long segment) {
+        if (segment == writeSegment) {
+            return writeBuffer;
+        }
+        if (segment != mappedReadSegment) {
+            readBuffer = map(segment);
+            mappedReadSegment = segment;
+        }
+        return readBuffer;
+    }
+
+    private JournalRecord readAt(MappedByteBuffer buffer, long segment, int position) {
+        if (position + HEADER_SIZE > buffer.capacity()) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + HEADER_SIZE + length > buffer.capacity()) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(position + HEADER_SIZE, payload);
+        if (crc(payload) != buffer.getInt(position + 4)) {
+            log.warn("Corrupted record in spill journal segment {} at position {}, rest of the segment skipped.", segment, position);
+            return null;
+        }
+        return decode(segment, position + HEADER_SIZE + length, payload);
+    }
+
+    private int scanEnd(MappedByteBuffer buffer, int from) {
+        int position = from;
+        JournalRecord record;
+        while ((record = readAt(buffer, -1, position)) != null) {
+            position = record.nextPosition();
+        }
+        return position;
+    }
+
+    private MappedByteBuffer map(long segment) {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("segment-") && name.endsWith(".log"))
+                    .map(name -> Long.parseLong(name.substring("segment-".length(), name.length() - ".log".length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("segment-%020d.log", segment));
+    }
+
+    private void deleteSegment(long segment) {
+        try {
+            Files.deleteIfExists(segmentPath(segment));
+        } catch (IOException e) {
+            log.warn("Spill journal segment {} not deleted: {}", segment, e.getMessage());
+        }
+        if (segment == mappedReadSegment) {
+            mappedReadSegment = -1;
+            readBuffer = null;
+        }
+    }
+
+    private void loadCheckpoint(long firstSegment) throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        if (!Files.exists(checkpoint)) {
+            readSegment = firstSegment;
+            readPosition = 0;
+            return;
+        }
+        String[] parts = Files.readString(checkpoint, StandardCharsets.UTF_8).trim().split(" ");
+        readSegment = Long.parseLong(parts[0]);
+        readPosition = Integer.parseInt(parts[1]);
+    }
+
+    private void writeCheckpoint() {
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        Path temporary = directory.resolve(CHECKPOINT + ".tmp");
+        try {
+            Files.writeString(temporary, readSegment + " " + readPosition, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+            Files.move(temporary, checkpoint, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload);
+        return (int) crc32.getValue();
+    }
+
+    private static byte[] encode(String topic, Long key, Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(topic);
+            out.writeBoolean(key != null);
+            if (key != null) {
+                out.writeLong(key);
+            }
+            if (value == null) {
+                out.writeInt(-1);
+            } else if (value instanceof PostDto post) {
+                byte[] encoded = PostDtoCodec.encode(post);
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            } else {
+                throw new NotificationOverflowException("Error: value of type " + value.getClass().getName() + " can't be spilled");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static JournalRecord decode(long segment, int nextPosition, byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            String topic = in.readUTF();
+            Long key = in.readBoolean() ? in.readLong() : null;
+            int valueLength = in.readInt();
+            PostDto value = null;
+            if (valueLength >= 0) {
+                value = PostDtoCodec.decode(in.readNBytes(valueLength));
+            }
+            return new JournalRecord(segment, nextPosition, topic, key, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public record JournalRecord(long segment, int nextPosition, String topic, Long key, Object value) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.utochkin.kafkaproducerforsma.sender;
+
+import com.utochkin.kafkaproducerforsma.props.SpillJournalProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "kafka.spill-journal", name = "enabled", havingValue = "true")
+public class SpillJournalDrainer {
+
+    private final SpillJournal spillJournal;
+    private final KafkaTemplate<Long, Object> kafkaTemplate;
+    private final SpillJournalProperties spillJournalProperties;
+
+    @Scheduled(fixedDelayString = "${kafka.spill-journal.drain-interval:1000}")
+    public void drain() {
+        while (!spillJournal.isEmpty()) {
+            List<SpillJournal.JournalRecord> records = spillJournal.read(spillJournalProperties.getDrainBatchSize());
+            if (records.isEmpty()) {
+                return;
+            }
+            int delivered = deliver(records);
+            if (delivered > 0) {
+                spillJournal.commit(records.get(delivered - 1));
+                log.info("{} spilled records replayed from journal.", delivered);
+            }
+            if (delivered < records.size()) {
+                return;
+            }
+        }
+    }
+
+    private int deliver(List<SpillJournal.JournalRecord> records) {
+        List<CompletableFuture<?>> futures = new ArrayList<>(records.size());
+        try {
+            for (SpillJournal.JournalRecord record : records) {
+                futures.add(kafkaTemplate.send(record.topic(), record.key(), record.value()));
+            }
+        } catch (Exception e) {
+            log.warn("Spill journal replay paused, broker unavailable: {}", e.getMessage());
+        }
+
+        int delivered = 0;
+        long deadline = System.nanoTime() + spillJournalProperties.getDrainTimeout().toNanos();
+        for (CompletableFuture<?> future : futures) {
+            try {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                delivered++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.warn("Spill journal replay paused: {}", e.getMessage());
+                break;
+            }
+        }
+        return delivered;
+    }
+}
@@ -0,0 +1,12 @@
+package com.utochkin.kafkaproducerforsma.serialization;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import org.apache.kafka.common.serialization.Deserializer;
+
+public class PostDtoBinaryDeserializer implements Deserializer<PostDto> {
+
+    @Override
+    public PostDto deserialize(String topic, byte[] data) {
+        return data == null ? null : PostDtoCodec.decode(data);
+    }
+}
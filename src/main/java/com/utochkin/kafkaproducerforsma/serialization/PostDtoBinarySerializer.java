@@ -0,0 +1,12 @@
+package com.utochkin.kafkaproducerforsma.serialization;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import org.apache.kafka.common.serialization.Serializer;
+
+public class PostDtoBinarySerializer implements Serializer<PostDto> {
+
+    @Override
+    public byte[] serialize(String topic, PostDto data) {
+        return data == null ? null : PostDtoCodec.encode(data);
+    }
+}
@@ -0,0 +1,126 @@
+package com.utochkin.kafkaproducerforsma.serialization;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Schema-versioned binary encoding of {@link PostDto}.
+ * <p>
+ * Layout of version 1: {@code version:byte, presence:byte, id:varlong, description:string, message:string,
+ * imageLink:string, imageName:string, createdAt:(epochSecond:varlong, nano:varint), authorName:string},
+ * where strings are a varint byte length followed by UTF-8 bytes and absent fields are skipped.
+ */
+public final class PostDtoCodec {
+
+    public static final byte VERSION_1 = 1;
+
+    private static final int ID = 1;
+    private static final int DESCRIPTION = 1 << 1;
+    private static final int MESSAGE = 1 << 2;
+    private static final int IMAGE_LINK = 1 << 3;
+    private static final int IMAGE_NAME = 1 << 4;
+    private static final int CREATED_AT = 1 << 5;
+    private static final int AUTHOR_NAME = 1 << 6;
+
+    private PostDtoCodec() {
+    }
+
+    public static byte[] encode(PostDto post) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        out.write(VERSION_1);
+        out.write(presence(post));
+        if (post.getId() != null) {
+            writeVarLong(out, post.getId());
+        }
+        writeString(out, post.getDescription());
+        writeString(out, post.getMessage());
+        writeString(out, post.getImageLink());
+        writeString(out, post.getImageName());
+        if (post.getCreatedAt() != null) {
+            writeVarLong(out, post.getCreatedAt().toEpochSecond(ZoneOffset.UTC));
+            writeVarLong(out, post.getCreatedAt().getNano());
+        }
+        writeString(out, post.getAuthorName());
+        return out.toByteArray();
+    }
+
+    public static PostDto decode(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        byte version = in.get();
+        if (version != VERSION_1) {
+            throw new IllegalArgumentException("Unsupported PostDto schema version: " + version);
+        }
+        int presence = in.get();
+        PostDto post = new PostDto();
+        if ((presence & ID) != 0) {
+            post.setId(readVarLong(in));
+        }
+        post.setDescription(readString(in, presence, DESCRIPTION));
+        post.setMessage(readString(in, presence, MESSAGE));
+        post.setImageLink(readString(in, presence, IMAGE_LINK));
+        post.setImageName(readString(in, presence, IMAGE_NAME));
+        if ((presence & CREATED_AT) != 0) {
+            long epochSecond = readVarLong(in);
+            int nano = (int) readVarLong(in);
+            post.setCreatedAt(LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC));
+        }
+        post.setAuthorName(readString(in, presence, AUTHOR_NAME));
+        return post;
+    }
+
+    private static int presence(PostDto post) {
+        int presence = 0;
+        if (post.getId() != null) presence |= ID;
+        if (post.getDescription() != null) presence |= DESCRIPTION;
+        if (post.getMessage() != null) presence |= MESSAGE;
+        if (post.getImageLink() != null) presence |= IMAGE_LINK;
+        if (post.getImageName() != null) presence |= IMAGE_NAME;
+        if (post.getCreatedAt() != null) presence |= CREATED_AT;
+        if (post.getAuthorName() != null) presence |= AUTHOR_NAME;
+        return presence;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in, int presence, int field) {
+        if ((presence & field) == 0) {
+            return null;
+        }
+        int length = (int) readVarLong(in);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in PostDto payload");
+    }
+}
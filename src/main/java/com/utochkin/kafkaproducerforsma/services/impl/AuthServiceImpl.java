@@ -7,8 +7,10 @@ import com.utochkin.kafkaproducerforsma.exceptions.BadCredentialsException;
 import com.utochkin.kafkaproducerforsma.models.User;
 import com.utochkin.kafkaproducerforsma.security.JwtTokenProvider;
 import com.utochkin.kafkaproducerforsma.services.interfaces.AuthService;
+import com.utochkin.kafkaproducerforsma.services.interfaces.FeedWarmupService;
 import com.utochkin.kafkaproducerforsma.services.interfaces.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.stereotype.Service;
@@ -20,6 +22,7 @@ public class AuthServiceImpl implements AuthService {
     private final AuthenticationManager authenticationManager;
     private final UserService userService;
     private final JwtTokenProvider jwtTokenProvider;
+    private final ObjectProvider<FeedWarmupService> feedWarmupService;
 
     @Override
     public JwtResponse login(JwtRequest loginRequest) {
@@ -34,11 +37,14 @@ public class AuthServiceImpl implements AuthService {
         jwtResponse.setName(user.getName());
         jwtResponse.setAccessToken(jwtTokenProvider.createAccessToken(user.getId(), user.getName(), user.getRole()));
         jwtResponse.setRefreshToken(jwtTokenProvider.createRefreshToken(user.getId(), user.getName()));
+        feedWarmupService.ifAvailable(warmup -> warmup.recordActivity(user.getId()));
         return jwtResponse;
     }
 
     @Override
     public JwtResponse refresh(String refreshToken) {
-        return jwtTokenProvider.refreshUserTokens(refreshToken);
+        JwtResponse jwtResponse = jwtTokenProvider.refreshUserTokens(refreshToken);
+        feedWarmupService.ifAvailable(warmup -> warmup.recordActivity(jwtResponse.getId()));
+        return jwtResponse;
     }
 }
@@ -0,0 +1,28 @@
+package com.utochkin.kafkaproducerforsma.services.impl;
+
+import com.utochkin.kafkaproducerforsma.props.FeedDeltaProperties;
+import com.utochkin.kafkaproducerforsma.repository.DeletedPostRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeletedPostsCleanup {
+
+    private final DeletedPostRepository deletedPostRepository;
+    private final FeedDeltaProperties feedDeltaProperties;
+
+    @Transactional
+    @Scheduled(cron = "${feed.delta.cleanup-cron:0 30 3 * * *}")
+    public void cleanup() {
+        LocalDateTime before = LocalDateTime.now().minus(feedDeltaProperties.getTombstoneRetention());
+        int deleted = deletedPostRepository.deleteDeletedBefore(before);
+        log.info("{} deleted post tombstones older than {} removed.", deleted, before);
+    }
+}
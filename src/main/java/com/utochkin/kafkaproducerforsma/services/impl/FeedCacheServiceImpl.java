@@ -0,0 +1,174 @@
+package com.utochkin.kafkaproducerforsma.services.impl;
+
+import com.utochkin.kafkaproducerforsma.config.ExecutorConfig;
+import com.utochkin.kafkaproducerforsma.events.FollowersChangedEvent;
+import com.utochkin.kafkaproducerforsma.events.PostChangedEvent;
+import com.utochkin.kafkaproducerforsma.props.FeedCacheProperties;
+import com.utochkin.kafkaproducerforsma.repository.UserRepository;
+import com.utochkin.kafkaproducerforsma.services.interfaces.FeedCacheService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Caches feed pages under {@code feed:page:<userId>:<version>:<page>}. Invalidating a user only increments
+ * {@code feed:version:<userId>}, so every cached page of that user becomes unreachable at once and expires by TTL.
+ * Pages computed ahead of a request are stored wrapped in {@link WarmedFeedPage} to count how many of them are used.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "feed.cache", name = "enabled", havingValue = "true")
+public class FeedCacheServiceImpl implements FeedCacheService {
+
+    static final String VERSION_KEY = "feed:version:";
+    static final String PAGE_KEY = "feed:page:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisTemplate<String, Object> feedPageRedisTemplate;
+    private final UserRepository userRepository;
+    private final FeedCacheProperties feedCacheProperties;
+    private final Executor executor;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+    private final Counter warmedPages;
+    private final Counter warmedHits;
+
+    public FeedCacheServiceImpl(StringRedisTemplate redisTemplate,
+                                RedisTemplate<String, Object> feedPageRedisTemplate,
+                                UserRepository userRepository,
+                                FeedCacheProperties feedCacheProperties,
+                                @Qualifier(ExecutorConfig.FEED_CACHE_EXECUTOR) Executor executor,
+                                MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.feedPageRedisTemplate = feedPageRedisTemplate;
+        this.userRepository = userRepository;
+        this.feedCacheProperties = feedCacheProperties;
+        this.executor = executor;
+        this.hits = meterRegistry.counter("feed.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("feed.cache.requests", "result", "miss");
+        this.invalidations = meterRegistry.counter("feed.cache.invalidations");
+        this.warmedPages = meterRegistry.counter("feed.cache.warmed", "result", "stored");
+        this.warmedHits = meterRegistry.counter("feed.cache.warmed", "result", "hit");
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Long userId, String page, Supplier<T> loader) {
+        String key;
+        try {
+            key = pageKey(userId, page);
+            Object cached = feedPageRedisTemplate.opsForValue().get(key);
+            if (cached instanceof WarmedFeedPage warmed) {
+                hits.increment();
+                warmedHits.increment();
+                return (T) warmed.page();
+            }
+            if (cached != null) {
+                hits.increment();
+                return (T) cached;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Feed cache is unavailable, reading feed of user with id = {} directly: {}", userId, e.getMessage());
+            return loader.get();
+        }
+
+        misses.increment();
+        T loaded = loader.get();
+        try {
+            feedPageRedisTemplate.opsForValue().set(key, loaded, feedCacheProperties.getTtl());
+        } catch (DataAccessException e) {
+            log.warn("Failed to cache feed page of user with id = {}: {}", userId, e.getMessage());
+        }
+        return loaded;
+    }
+
+    @Override
+    public <T> void warm(Long userId, String page, Supplier<T> loader) {
+        try {
+            String key = pageKey(userId, page);
+            if (Boolean.TRUE.equals(feedPageRedisTemplate.hasKey(key))) {
+                return;
+            }
+            feedPageRedisTemplate.opsForValue().set(key, new WarmedFeedPage(loader.get()), feedCacheProperties.getTtl());
+            warmedPages.increment();
+        } catch (DataAccessException e) {
+            log.warn("Failed to warm feed page of user with id = {}: {}", userId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void invalidate(Long userId) {
+        invalidate(List.of(userId));
+    }
+
+    @TransactionalEventListener
+    public void onPostChanged(PostChangedEvent event) {
+        try {
+            executor.execute(() -> invalidateFollowers(event.authorId()));
+        } catch (RejectedExecutionException e) {
+            // cached pages of the followers stay reachable only until their TTL, the next invalidation bumps the version
+            log.warn("Invalidation of followers of user with id = {} dropped: {}", event.authorId(), e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener
+    public void onFollowersChanged(FollowersChangedEvent event) {
+        invalidate(event.followerId());
+    }
+
+    void invalidateFollowers(Long authorId) {
+        long lastFollowerId = 0L;
+        List<Long> followerIds;
+        do {
+            followerIds = userRepository.getFollowerIdsAfter(authorId, lastFollowerId, feedCacheProperties.getInvalidationChunkSize());
+            if (!followerIds.isEmpty()) {
+                invalidate(followerIds);
+                lastFollowerId = followerIds.get(followerIds.size() - 1);
+            }
+        } while (followerIds.size() == feedCacheProperties.getInvalidationChunkSize());
+    }
+
+    private void invalidate(List<Long> userIds) {
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, String> versions = (RedisOperations<String, String>) operations;
+                    userIds.forEach(userId -> {
+                        versions.opsForValue().increment(VERSION_KEY + userId);
+                        versions.expire(VERSION_KEY + userId, feedCacheProperties.getVersionTtl());
+                    });
+                    return null;
+                }
+            });
+            invalidations.increment(userIds.size());
+        } catch (DataAccessException e) {
+            log.warn("Failed to invalidate cached feed of {} users: {}", userIds.size(), e.getMessage());
+        }
+    }
+
+    private String pageKey(Long userId, String page) {
+        String version = redisTemplate.opsForValue().get(VERSION_KEY + userId);
+        return PAGE_KEY + userId + ":" + (version == null ? "0" : version) + ":" + page;
+    }
+
+    record WarmedFeedPage(Object page) implements Serializable {
+    }
+}
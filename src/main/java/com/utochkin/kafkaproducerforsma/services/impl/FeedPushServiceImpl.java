@@ -0,0 +1,96 @@
+package com.utochkin.kafkaproducerforsma.services.impl;
+
+import com.utochkin.kafkaproducerforsma.config.ExecutorConfig;
+import com.utochkin.kafkaproducerforsma.dto.FeedUpdateDto;
+import com.utochkin.kafkaproducerforsma.events.PostChangedEvent;
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
+import com.utochkin.kafkaproducerforsma.props.FeedPushProperties;
+import com.utochkin.kafkaproducerforsma.repository.UserRepository;
+import com.utochkin.kafkaproducerforsma.services.interfaces.FeedPushService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Sends a lightweight frame to {@code /user/queue/feed} of every connected follower when a post is created.
+ * Followers are looked up among the users connected to this node, so the cost depends on the number of
+ * open sessions rather than on the number of followers of the author.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "feed.push", name = "enabled", havingValue = "true")
+public class FeedPushServiceImpl implements FeedPushService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry simpUserRegistry;
+    private final UserRepository userRepository;
+    private final FeedPushProperties feedPushProperties;
+    private final Executor executor;
+    private final Counter frames;
+
+    public FeedPushServiceImpl(SimpMessagingTemplate messagingTemplate,
+                               SimpUserRegistry simpUserRegistry,
+                               UserRepository userRepository,
+                               FeedPushProperties feedPushProperties,
+                               @Qualifier(ExecutorConfig.FEED_PUSH_EXECUTOR) Executor executor,
+                               MeterRegistry meterRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.simpUserRegistry = simpUserRegistry;
+        this.userRepository = userRepository;
+        this.feedPushProperties = feedPushProperties;
+        this.executor = executor;
+        this.frames = meterRegistry.counter("feed.push.frames");
+    }
+
+    @TransactionalEventListener
+    public void onPostChanged(PostChangedEvent event) {
+        if (event.type() != OutboxEventType.POST_CREATED || simpUserRegistry.getUserCount() == 0) {
+            return;
+        }
+        FeedUpdateDto update = FeedUpdateDto.builder()
+                .type(event.type())
+                .postId(event.postId())
+                .authorId(event.authorId())
+                .createdAt(event.createdAt())
+                .build();
+        try {
+            executor.execute(() -> pushToConnectedFollowers(update));
+        } catch (RejectedExecutionException e) {
+            // frames are only a hint, connected followers still get the post with their next feed request
+            log.warn("Push of post with id = {} to connected followers dropped: {}", event.postId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public int pushToConnectedFollowers(FeedUpdateDto update) {
+        List<String> connected = simpUserRegistry.getUsers().stream()
+                .map(SimpUser::getName)
+                .toList();
+        int sent = 0;
+        for (int from = 0; from < connected.size(); from += feedPushProperties.getChunkSize()) {
+            List<String> chunk = connected.subList(from, Math.min(connected.size(), from + feedPushProperties.getChunkSize()));
+            for (String follower : userRepository.getFollowerNamesAmong(update.getAuthorId(), chunk)) {
+                try {
+                    messagingTemplate.convertAndSendToUser(follower, feedPushProperties.getDestination(), update);
+                    sent++;
+                } catch (MessagingException e) {
+                    log.warn("Failed to push post with id = {} to user {}: {}", update.getPostId(), follower, e.getMessage());
+                }
+            }
+        }
+        frames.increment(sent);
+        return sent;
+    }
+}
@@ -0,0 +1,212 @@
+package com.utochkin.kafkaproducerforsma.services.impl;
+
+import com.utochkin.kafkaproducerforsma.config.ExecutorConfig;
+import com.utochkin.kafkaproducerforsma.events.FollowersChangedEvent;
+import com.utochkin.kafkaproducerforsma.events.PostChangedEvent;
+import com.utochkin.kafkaproducerforsma.props.FeedRankingProperties;
+import com.utochkin.kafkaproducerforsma.ranking.FeedCandidate;
+import com.utochkin.kafkaproducerforsma.ranking.RankedFeed;
+import com.utochkin.kafkaproducerforsma.ranking.RankingContext;
+import com.utochkin.kafkaproducerforsma.ranking.RankingSignal;
+import com.utochkin.kafkaproducerforsma.repository.PostRepository;
+import com.utochkin.kafkaproducerforsma.repository.UserRepository;
+import com.utochkin.kafkaproducerforsma.services.interfaces.FeedRankingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Keeps a {@link RankedFeed} in memory for up to {@code max-users} recently read users. The feed of a user is built
+ * from the latest {@code candidate-limit} posts on the first read and is then updated incrementally:
+ * a created post is scored only for the loaded users who follow its author, a deleted post is dropped everywhere.
+ * A feed that is being built already receives these updates, so a post committed after the candidates were read is
+ * not lost, and it is not published if the followings of its user change meanwhile.
+ */
+@Service
+@ConditionalOnProperty(prefix = "feed.ranking", name = "enabled", havingValue = "true")
+public class FeedRankingServiceImpl implements FeedRankingService {
+
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+    private final FeedRankingProperties feedRankingProperties;
+    private final List<RankingSignal> staticSignals;
+    private final List<RankingSignal> dynamicSignals;
+    private final Map<Long, RankedFeed> feeds;
+    // guarded by feeds
+    private final Map<Long, PendingFeed> building = new HashMap<>();
+    private final Executor executor;
+    private final Timer rankTimer;
+    private final Counter builds;
+    private final Counter inserts;
+    private final Counter droppedInserts;
+
+    public FeedRankingServiceImpl(PostRepository postRepository,
+                                  UserRepository userRepository,
+                                  List<RankingSignal> signals,
+                                  FeedRankingProperties feedRankingProperties,
+                                  @Qualifier(ExecutorConfig.FEED_RANKING_EXECUTOR) Executor executor,
+                                  MeterRegistry meterRegistry) {
+        this.postRepository = postRepository;
+        this.userRepository = userRepository;
+        this.feedRankingProperties = feedRankingProperties;
+        this.staticSignals = signals.stream().filter(RankingSignal::isStatic).toList();
+        this.dynamicSignals = signals.stream().filter(signal -> !signal.isStatic()).toList();
+        this.feeds = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, RankedFeed> eldest) {
+                return size() > feedRankingProperties.getMaxUsers();
+            }
+        };
+        this.executor = executor;
+        this.rankTimer = meterRegistry.timer("feed.ranking.rank");
+        this.builds = meterRegistry.counter("feed.ranking.builds");
+        this.inserts = meterRegistry.counter("feed.ranking.inserts");
+        this.droppedInserts = meterRegistry.counter("feed.ranking.inserts.dropped");
+        meterRegistry.gauge("feed.ranking.users", feeds, Map::size);
+    }
+
+    @Override
+    public List<Long> getRankedPostIds(Long userId, int page, int size) {
+        RankedFeed feed = feed(userId);
+        return rankTimer.record(() -> feed.top(page * size, size, candidate -> score(dynamicSignals, feed.getContext(), candidate)));
+    }
+
+    @Override
+    public void evict(Long userId) {
+        synchronized (feeds) {
+            feeds.remove(userId);
+            building.remove(userId);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onPostChanged(PostChangedEvent event) {
+        switch (event.type()) {
+            case POST_CREATED -> {
+                try {
+                    executor.execute(() -> offerToFollowers(new FeedCandidate(event.postId(), event.authorId(),
+                            TimelineServiceImpl.score(event.createdAt()))));
+                } catch (RejectedExecutionException e) {
+                    // the post is ranked once the feeds of the followers are rebuilt
+                    droppedInserts.increment();
+                }
+            }
+            case POST_DELETED -> {
+                try {
+                    executor.execute(() -> removeEverywhere(event.postId()));
+                } catch (RejectedExecutionException e) {
+                    // touches memory only, a deleted post must not stay ranked until eviction
+                    removeEverywhere(event.postId());
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    @TransactionalEventListener
+    public void onFollowersChanged(FollowersChangedEvent event) {
+        evict(event.followerId());
+    }
+
+    private RankedFeed feed(Long userId) {
+        PendingFeed pending = null;
+        synchronized (feeds) {
+            RankedFeed feed = feeds.get(userId);
+            if (feed != null) {
+                return feed;
+            }
+            // only the first concurrent reader publishes its feed, the others serve theirs once
+            if (!building.containsKey(userId)) {
+                pending = new PendingFeed();
+                building.put(userId, pending);
+            }
+        }
+        RankedFeed built = build(userId, pending);
+        if (pending != null) {
+            synchronized (feeds) {
+                // removed by evict() when the followings changed during the build
+                if (building.remove(userId, pending)) {
+                    pending.removedPostIds.forEach(built::remove);
+                    feeds.put(userId, built);
+                }
+            }
+        }
+        return built;
+    }
+
+    private RankedFeed build(Long userId, PendingFeed pending) {
+        RankingContext context = new RankingContext(userId, Set.copyOf(userRepository.getFriendIds(userId)));
+        RankedFeed feed = new RankedFeed(context, feedRankingProperties.getTopN());
+        if (pending != null) {
+            synchronized (feeds) {
+                pending.feed = feed;
+            }
+        }
+        postRepository.getFeedCandidates(userId, feedRankingProperties.getCandidateLimit()).forEach(entry -> {
+            FeedCandidate candidate = new FeedCandidate(entry.getId(), entry.getAuthorId(), entry.getScore());
+            feed.offer(candidate, score(staticSignals, context, candidate));
+        });
+        builds.increment();
+        return feed;
+    }
+
+    void offerToFollowers(FeedCandidate candidate) {
+        Map<Long, RankedFeed> loaded;
+        synchronized (feeds) {
+            // a copy, get() on the access-ordered map would count a new post of a followed author as a read
+            loaded = new HashMap<>(feeds);
+            building.forEach((userId, pending) -> {
+                if (pending.feed != null) {
+                    loaded.putIfAbsent(userId, pending.feed);
+                }
+            });
+        }
+        List<Long> userIds = new ArrayList<>(loaded.keySet());
+        for (int from = 0; from < userIds.size(); from += feedRankingProperties.getChunkSize()) {
+            List<Long> chunk = userIds.subList(from, Math.min(userIds.size(), from + feedRankingProperties.getChunkSize()));
+            for (Long followerId : userRepository.getFollowerIdsAmong(candidate.authorId(), chunk)) {
+                RankedFeed feed = loaded.get(followerId);
+                if (feed != null && feed.offer(candidate, score(staticSignals, feed.getContext(), candidate))) {
+                    inserts.increment();
+                }
+            }
+        }
+    }
+
+    void removeEverywhere(Long postId) {
+        List<RankedFeed> loaded;
+        synchronized (feeds) {
+            loaded = new ArrayList<>(feeds.values());
+            // the candidates of a feed being built may have been read before the delete, removed again on publish
+            building.values().forEach(pending -> {
+                pending.removedPostIds.add(postId);
+                if (pending.feed != null) {
+                    loaded.add(pending.feed);
+                }
+            });
+        }
+        loaded.forEach(feed -> feed.remove(postId));
+    }
+
+    private static double score(List<RankingSignal> signals, RankingContext context, FeedCandidate candidate) {
+        double score = 0.0;
+        for (RankingSignal signal : signals) {
+            score += signal.score(context, candidate);
+        }
+        return score;
+    }
+
+    private static final class PendingFeed {
+        private RankedFeed feed;
+        private final Set<Long> removedPostIds = new HashSet<>();
+    }
+}
@@ -0,0 +1,96 @@
+package com.utochkin.kafkaproducerforsma.services.impl;
+
+import com.utochkin.kafkaproducerforsma.config.ExecutorConfig;
+import com.utochkin.kafkaproducerforsma.props.FeedWarmupProperties;
+import com.utochkin.kafkaproducerforsma.services.interfaces.FeedWarmupService;
+import com.utochkin.kafkaproducerforsma.services.interfaces.PostService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Remembers the users who logged in or refreshed a token recently (bounded LRU of {@code max-users}) and keeps
+ * the first page of their feed in the feed cache, so that opening the feed right after login is a cache hit.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "feed.warmup", name = "enabled", havingValue = "true")
+public class FeedWarmupServiceImpl implements FeedWarmupService {
+
+    private final PostService postService;
+    private final FeedWarmupProperties feedWarmupProperties;
+    private final Map<Long, Long> recentlyActive;
+    private final Set<Long> inProgress = ConcurrentHashMap.newKeySet();
+    private final Executor executor;
+    private final Counter warmed;
+    private final Counter failed;
+    private final Counter skipped;
+
+    public FeedWarmupServiceImpl(PostService postService,
+                                 FeedWarmupProperties feedWarmupProperties,
+                                 @Qualifier(ExecutorConfig.FEED_WARMUP_EXECUTOR) Executor executor,
+                                 MeterRegistry meterRegistry) {
+        this.postService = postService;
+        this.feedWarmupProperties = feedWarmupProperties;
+        this.recentlyActive = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > feedWarmupProperties.getMaxUsers();
+            }
+        };
+        this.executor = executor;
+        this.warmed = meterRegistry.counter("feed.warmup.users", "result", "warmed");
+        this.failed = meterRegistry.counter("feed.warmup.users", "result", "failed");
+        this.skipped = meterRegistry.counter("feed.warmup.users", "result", "skipped");
+        meterRegistry.gauge("feed.warmup.active.users", recentlyActive, Map::size);
+    }
+
+    @Override
+    public void recordActivity(Long userId) {
+        synchronized (recentlyActive) {
+            recentlyActive.put(userId, System.currentTimeMillis());
+        }
+        warm(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${feed.warmup.refresh-interval:20000}")
+    public void refresh() {
+        long activeSince = System.currentTimeMillis() - feedWarmupProperties.getActiveWindow().toMillis();
+        List<Long> userIds;
+        synchronized (recentlyActive) {
+            recentlyActive.values().removeIf(lastActive -> lastActive < activeSince);
+            userIds = new ArrayList<>(recentlyActive.keySet());
+        }
+        userIds.forEach(this::warm);
+    }
+
+    private void warm(Long userId) {
+        if (!inProgress.add(userId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    postService.warmFeed(userId, feedWarmupProperties.getPageSize(), feedWarmupProperties.getCursorPageSize());
+                    warmed.increment();
+                } catch (RuntimeException e) {
+                    failed.increment();
+                    log.warn("Failed to warm feed of user with id = {}: {}", userId, e.getMessage());
+                } finally {
+                    inProgress.remove(userId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // warming is best effort, a busy pool must not slow down login
+            inProgress.remove(userId);
+            skipped.increment();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.utochkin.kafkaproducerforsma.services.impl;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.props.MinioProperties;
+import com.utochkin.kafkaproducerforsma.services.interfaces.ImageLinkService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.http.Method;
+import lombok.SneakyThrows;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Resolves presigned GET links of images when posts are read, so a stored post never carries an expired link.
+ * Links are kept in an LRU of {@code minio.link-cache-size} entries and signed again once less than
+ * {@code minio.link-refresh-before} of their {@code minio.link-expiry} is left, a returned link is therefore valid
+ * for at least that long. Misses of a whole feed page are looked up under one lock and signed together.
+ */
+@Service
+public class ImageLinkServiceImpl implements ImageLinkService {
+
+    private final MinioClient minioClient;
+    private final MinioProperties minioProperties;
+    private final Map<String, Link> links;
+    private final Counter hits;
+    private final Counter signed;
+
+    public ImageLinkServiceImpl(MinioClient minioClient,
+                                MinioProperties minioProperties,
+                                MeterRegistry meterRegistry) {
+        this.minioClient = minioClient;
+        this.minioProperties = minioProperties;
+        this.links = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Link> eldest) {
+                return size() > minioProperties.getLinkCacheSize();
+            }
+        };
+        this.hits = meterRegistry.counter("image.links", "result", "hit");
+        this.signed = meterRegistry.counter("image.links", "result", "signed");
+        meterRegistry.gauge("image.links.cached", links, Map::size);
+    }
+
+    @Override
+    public Map<String, String> getLinks(Collection<String> imageNames) {
+        Map<String, String> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (links) {
+            for (String imageName : imageNames) {
+                Link link = links.get(imageName);
+                if (link != null && link.refreshAt() > now) {
+                    result.put(imageName, link.url());
+                } else {
+                    missing.add(imageName);
+                }
+            }
+        }
+        hits.increment(result.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long refreshAt = now + minioProperties.getLinkExpiry().minus(minioProperties.getLinkRefreshBefore()).toMillis();
+        Map<String, Link> fresh = new HashMap<>();
+        for (String imageName : missing) {
+            fresh.put(imageName, new Link(sign(imageName), refreshAt));
+        }
+        synchronized (links) {
+            links.putAll(fresh);
+        }
+        fresh.forEach((imageName, link) -> result.put(imageName, link.url()));
+        signed.increment(fresh.size());
+        return result;
+    }
+
+    @Override
+    public void resolveLinks(Collection<PostDto> posts) {
+        Set<String> imageNames = new HashSet<>();
+        for (PostDto post : posts) {
+            if (post.getImageName() != null) {
+                imageNames.add(post.getImageName());
+            }
+            if (post.getThumbnailName() != null) {
+                imageNames.add(post.getThumbnailName());
+            }
+        }
+        if (imageNames.isEmpty()) {
+            return;
+        }
+        Map<String, String> resolved = getLinks(imageNames);
+        for (PostDto post : posts) {
+            if (post.getImageName() != null) {
+                post.setImageLink(resolved.get(post.getImageName()));
+                post.setThumbnailLink(resolved.get(post.getThumbnailName() != null ? post.getThumbnailName() : post.getImageName()));
+            }
+        }
+    }
+
+    @SneakyThrows
+    private String sign(String imageName) {
+        return minioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                .method(Method.GET)
+                .bucket(minioProperties.getBucket())
+                .object(imageName)
+                .expiry((int) minioProperties.getLinkExpiry().toSeconds())
+                .build());
+    }
+
+    private record Link(String url, long refreshAt) {
+    }
+}
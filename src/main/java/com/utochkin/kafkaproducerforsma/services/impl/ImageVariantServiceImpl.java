@@ -0,0 +1,255 @@
+package com.utochkin.kafkaproducerforsma.services.impl;
+
+import com.utochkin.kafkaproducerforsma.config.ExecutorConfig;
+import com.utochkin.kafkaproducerforsma.events.ImageUploadedEvent;
+import com.utochkin.kafkaproducerforsma.events.PostChangedEvent;
+import com.utochkin.kafkaproducerforsma.models.ImageVariant;
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
+import com.utochkin.kafkaproducerforsma.props.ImageVariantProperties;
+import com.utochkin.kafkaproducerforsma.props.MinioProperties;
+import com.utochkin.kafkaproducerforsma.repository.PostRepository;
+import com.utochkin.kafkaproducerforsma.repository.StoredImageRepository;
+import com.utochkin.kafkaproducerforsma.services.interfaces.ImageVariantService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.*;
+import io.minio.errors.ErrorResponseException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Builds downscaled JPEG copies of an uploaded image after the post is committed. The original is downloaded and
+ * decoded once, every size from {@code image.variants.sizes} (longest side in pixels) is stored next to it as
+ * {@code <imageName>_<variant>.jpg} and recorded in {@code post_image_variants}. Until the variants are ready
+ * the feed shows the original. Posts sharing a content-addressed image share its variants, they are built once and
+ * only recorded for the later posts. Images declaring more than {@code image.variants.max-pixels} pixels are not
+ * decoded, a small compressed upload could otherwise expand to gigabytes.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "image.variants", name = "enabled", havingValue = "true")
+public class ImageVariantServiceImpl implements ImageVariantService {
+
+    private static final String CONTENT_TYPE = "image/jpeg";
+
+    private final MinioClient minioClient;
+    private final MinioProperties minioProperties;
+    private final PostRepository postRepository;
+    private final StoredImageRepository storedImageRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
+    private final ImageVariantProperties imageVariantProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+    private final Counter created;
+    private final Counter failed;
+    private final Counter rejected;
+
+    public ImageVariantServiceImpl(MinioClient minioClient,
+                                   MinioProperties minioProperties,
+                                   PostRepository postRepository,
+                                   StoredImageRepository storedImageRepository,
+                                   ApplicationEventPublisher eventPublisher,
+                                   CacheManager cacheManager,
+                                   PlatformTransactionManager transactionManager,
+                                   ImageVariantProperties imageVariantProperties,
+                                   @Qualifier(ExecutorConfig.IMAGE_VARIANT_EXECUTOR) Executor executor,
+                                   MeterRegistry meterRegistry) {
+        this.minioClient = minioClient;
+        this.minioProperties = minioProperties;
+        this.postRepository = postRepository;
+        this.storedImageRepository = storedImageRepository;
+        this.eventPublisher = eventPublisher;
+        this.cacheManager = cacheManager;
+        this.imageVariantProperties = imageVariantProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = executor;
+        this.created = meterRegistry.counter("image.variants", "result", "created");
+        this.failed = meterRegistry.counter("image.variants", "result", "failed");
+        this.rejected = meterRegistry.counter("image.variants", "result", "rejected");
+    }
+
+    @TransactionalEventListener
+    public void onImageUploaded(ImageUploadedEvent event) {
+        try {
+            executor.execute(() -> createVariants(event.postId(), event.imageName()));
+        } catch (RejectedExecutionException e) {
+            // never decoded on the request thread, the feed keeps showing the original
+            rejected.increment();
+            log.warn("Variants of image {} of post with id = {} are not created: {}", event.imageName(), event.postId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void createVariants(Long postId, String imageName) {
+        try {
+            boolean shared = storedImageRepository.getRefCount(imageName).orElse(0) > 1;
+            BufferedImage original = null;
+            Map<String, ImageVariant> variants = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> size : imageVariantProperties.getSizes().entrySet()) {
+                String variantName = imageName + "_" + size.getKey() + ".jpg";
+                if (!shared || !exists(variantName)) {
+                    if (original == null) {
+                        original = download(imageName);
+                    }
+                    if (original == null) {
+                        failed.increment();
+                        log.warn("Image {} of post with id = {} can not be decoded, variants are not created", imageName, postId);
+                        return;
+                    }
+                    byte[] jpeg = encodeJpeg(resize(original, size.getValue()));
+                    minioClient.putObject(PutObjectArgs.builder()
+                            .bucket(minioProperties.getBucket())
+                            .object(variantName)
+                            .contentType(CONTENT_TYPE)
+                            .stream(new ByteArrayInputStream(jpeg), jpeg.length, -1)
+                            .build());
+                }
+                variants.put(size.getKey(), new ImageVariant(variantName, null));
+            }
+
+            if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> saveVariants(postId, imageName, variants)))) {
+                // the post was deleted or got another image while the variants were built,
+                // the variants stay while other posts still reference the same content
+                if (storedImageRepository.getRefCount(imageName).isEmpty()) {
+                    variants.values().forEach(variant -> deleteImage(variant.getImageName()));
+                }
+                return;
+            }
+            Cache posts = cacheManager.getCache("PostService::getPost");
+            if (posts != null) {
+                posts.evict(postId);
+            }
+            created.increment(variants.size());
+        } catch (Exception e) {
+            failed.increment();
+            log.warn("Failed to create variants of image {} of post with id = {}: {}", imageName, postId, e.getMessage());
+        }
+    }
+
+    private BufferedImage download(String imageName) throws Exception {
+        try (InputStream inputStream = minioClient.getObject(GetObjectArgs.builder()
+                .bucket(minioProperties.getBucket())
+                .object(imageName)
+                .build())) {
+            return decode(inputStream);
+        }
+    }
+
+    private BufferedImage decode(InputStream inputStream) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = input == null ? Collections.emptyIterator() : ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // read from the header, nothing is decoded yet
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > imageVariantProperties.getMaxPixels()) {
+                    throw new IOException("image has " + pixels + " pixels, the limit is " + imageVariantProperties.getMaxPixels());
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private boolean exists(String fileName) throws Exception {
+        try {
+            minioClient.statObject(StatObjectArgs.builder()
+                    .bucket(minioProperties.getBucket())
+                    .object(fileName)
+                    .build());
+            return true;
+        } catch (ErrorResponseException e) {
+            return false;
+        }
+    }
+
+    private boolean saveVariants(Long postId, String imageName, Map<String, ImageVariant> variants) {
+        return postRepository.findById(postId)
+                .filter(post -> imageName.equals(post.getImageName()))
+                .map(post -> {
+                    post.getImageVariants().putAll(variants);
+                    eventPublisher.publishEvent(new PostChangedEvent(post.getId(), post.getUser().getId(), post.getCreatedAt(), OutboxEventType.POST_UPDATED));
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    static BufferedImage resize(BufferedImage original, int maxSide) {
+        double scale = Math.min(1.0, (double) maxSide / Math.max(original.getWidth(), original.getHeight()));
+        int width = Math.max(1, (int) Math.round(original.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(original.getHeight() * scale));
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // JPEG has no alpha channel, transparent PNG pixels become white instead of black
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(original, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(imageVariantProperties.getQuality());
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    private void deleteImage(String fileName) {
+        try {
+            minioClient.removeObject(RemoveObjectArgs.builder()
+                    .bucket(minioProperties.getBucket())
+                    .object(fileName)
+                    .build());
+        } catch (Exception e) {
+            log.warn("Failed to delete image {}: {}", fileName, e.getMessage());
+        }
+    }
+}
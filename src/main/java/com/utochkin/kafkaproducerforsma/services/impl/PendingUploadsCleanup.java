@@ -0,0 +1,48 @@
+package com.utochkin.kafkaproducerforsma.services.impl;
+
+import com.utochkin.kafkaproducerforsma.props.MinioProperties;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PendingUploadsCleanup {
+
+    private final MinioClient minioClient;
+    private final MinioProperties minioProperties;
+
+    @Scheduled(cron = "${minio.pendingUploadsCleanupCron:0 15 * * * *}")
+    public void cleanup() {
+        ZonedDateTime before = ZonedDateTime.now().minus(minioProperties.getPendingUploadRetention());
+        int deleted = 0;
+        try {
+            for (Result<Item> result : minioClient.listObjects(ListObjectsArgs.builder()
+                    .bucket(minioProperties.getBucket())
+                    .prefix(PostServiceImpl.PENDING_UPLOAD_PREFIX)
+                    .recursive(true)
+                    .build())) {
+                Item item = result.get();
+                if (item.lastModified() != null && item.lastModified().isBefore(before)) {
+                    minioClient.removeObject(RemoveObjectArgs.builder()
+                            .bucket(minioProperties.getBucket())
+                            .object(item.objectName())
+                            .build());
+                    deleted++;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to remove unconfirmed uploads: {}", e.getMessage());
+        }
+        log.info("{} unconfirmed uploads older than {} removed.", deleted, before);
+    }
+}
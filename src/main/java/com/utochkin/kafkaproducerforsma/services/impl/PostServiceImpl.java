@@ -1,71 +1,177 @@
 package com.utochkin.kafkaproducerforsma.services.impl;
 
+import com.utochkin.kafkaproducerforsma.dto.FeedCursor;
+import com.utochkin.kafkaproducerforsma.dto.FeedDeltaDto;
+import com.utochkin.kafkaproducerforsma.dto.FeedPageDto;
+import com.utochkin.kafkaproducerforsma.dto.ImageUploadDto;
 import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.events.ImageUploadedEvent;
+import com.utochkin.kafkaproducerforsma.events.PostChangedEvent;
 import com.utochkin.kafkaproducerforsma.exceptions.AccessDeniedException;
 import com.utochkin.kafkaproducerforsma.exceptions.BadInputDataException;
 import com.utochkin.kafkaproducerforsma.exceptions.PostNotFoundException;
 import com.utochkin.kafkaproducerforsma.exceptions.UserNotFoundException;
 import com.utochkin.kafkaproducerforsma.mappers.PostMapper;
+import com.utochkin.kafkaproducerforsma.models.DeletedPost;
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
 import com.utochkin.kafkaproducerforsma.models.Post;
 import com.utochkin.kafkaproducerforsma.models.User;
+import com.utochkin.kafkaproducerforsma.props.FeedCursorProperties;
+import com.utochkin.kafkaproducerforsma.props.FeedDeltaProperties;
 import com.utochkin.kafkaproducerforsma.props.MinioProperties;
+import com.utochkin.kafkaproducerforsma.repository.DeletedPostRepository;
 import com.utochkin.kafkaproducerforsma.repository.PostRepository;
+import com.utochkin.kafkaproducerforsma.repository.StoredImageRepository;
 import com.utochkin.kafkaproducerforsma.repository.UserRepository;
-import com.utochkin.kafkaproducerforsma.sender.KafkaSenderService;
+import com.utochkin.kafkaproducerforsma.sender.PostOutboxService;
+import com.utochkin.kafkaproducerforsma.services.interfaces.FeedCacheService;
+import com.utochkin.kafkaproducerforsma.services.interfaces.FeedRankingService;
+import com.utochkin.kafkaproducerforsma.services.interfaces.ImageLinkService;
 import com.utochkin.kafkaproducerforsma.services.interfaces.PostService;
+import com.utochkin.kafkaproducerforsma.services.interfaces.TimelineService;
 import io.minio.*;
 import io.minio.http.Method;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class PostServiceImpl implements PostService {
 
+    // presigned uploads land here and are moved out when a post is created with them, leftovers are swept
+    static final String PENDING_UPLOAD_PREFIX = "pending/";
+
     private final PostMapper postMapper;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
     private final MinioClient minioClient;
     private final MinioProperties minioProperties;
-    private final KafkaSenderService kafkaSenderService;
+    private final PostOutboxService postOutboxService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<TimelineService> timelineService;
+    private final DeletedPostRepository deletedPostRepository;
+    private final FeedDeltaProperties feedDeltaProperties;
+    private final FeedCursorProperties feedCursorProperties;
+    private final ObjectProvider<FeedCacheService> feedCacheService;
+    private final ObjectProvider<FeedRankingService> feedRankingService;
+    private final StoredImageRepository storedImageRepository;
+    private final ImageLinkService imageLinkService;
 
     @Override
     public PostDto createPost(PostDto postDto, MultipartFile file) {
-        Post createdPost = postMapper.toEntity(postDto);
         String name = SecurityContextHolder.getContext().getAuthentication().getName();
         User user = userRepository.findByName(name).orElseThrow(UserNotFoundException::new);
+        return savePost(postDto, user, file == null ? null : checkAndSaveImageAtMinioAndGetFilename(file));
+    }
 
-        if (file == null) {
-            createdPost.setImageName(null);
-            createdPost.setImageLink(null);
-        } else {
-            String fileName = checkAndSaveImageAtMinioAndGetFilename(file);
-            createdPost.setImageName(fileName);
-            createdPost.setImageLink(getUrlImage(fileName));
+    @Override
+    public ImageUploadDto createImageUploadUrl(String fileName, String contentType) {
+        String name = SecurityContextHolder.getContext().getAuthentication().getName();
+        User user = userRepository.findByName(name).orElseThrow(UserNotFoundException::new);
+        if (contentType == null || !isSupportedContentType(contentType)) {
+            throw new BadInputDataException("Incorrect input file");
+        }
+        try {
+            createBucket();
+        } catch (Exception e) {
+            throw new BadInputDataException("Image upload failed: " + e.getMessage());
         }
+        String imageName = PENDING_UPLOAD_PREFIX + uploadPrefix(user) + UUID.randomUUID() + ": <" + LocalDateTime.now() + "> " + fileName;
+        int expiry = (int) minioProperties.getUploadUrlExpiry().toSeconds();
+        return ImageUploadDto.builder()
+                .imageName(imageName)
+                .uploadUrl(getUploadUrl(imageName, expiry))
+                .expiresAt(LocalDateTime.now().plusSeconds(expiry))
+                .build();
+    }
 
+    @Override
+    public PostDto createPostWithUploadedImage(PostDto postDto, String imageName) {
+        String name = SecurityContextHolder.getContext().getAuthentication().getName();
+        User user = userRepository.findByName(name).orElseThrow(UserNotFoundException::new);
+        if (!imageName.startsWith(PENDING_UPLOAD_PREFIX + uploadPrefix(user))) {
+            throw new AccessDeniedException("Error: access denied!");
+        }
+        StatObjectResponse stat;
+        try {
+            stat = minioClient.statObject(StatObjectArgs.builder()
+                    .bucket(minioProperties.getBucket())
+                    .object(imageName)
+                    .build());
+        } catch (Exception e) {
+            throw new BadInputDataException("Uploaded image not found: " + imageName);
+        }
+        if (stat.size() > minioProperties.getMaxUploadSize()
+                || stat.contentType() == null || !isSupportedContentType(stat.contentType())) {
+            deleteImage(imageName);
+            throw new BadInputDataException("Incorrect input file");
+        }
+        // the pending object is gone after the move, so the same upload can not be attached to a second post
+        String fileName = imageName.substring(PENDING_UPLOAD_PREFIX.length());
+        storedImageRepository.acquire(fileName, stat.size(), stat.contentType());
+        if (storedImageRepository.getRefCount(fileName).orElse(1) > 1) {
+            throw new BadInputDataException("Uploaded image is already attached to a post: " + imageName);
+        }
+        try {
+            minioClient.copyObject(CopyObjectArgs.builder()
+                    .bucket(minioProperties.getBucket())
+                    .object(fileName)
+                    .source(CopySource.builder()
+                            .bucket(minioProperties.getBucket())
+                            .object(imageName)
+                            .build())
+                    .build());
+        } catch (Exception e) {
+            throw new BadInputDataException("Image upload failed: " + e.getMessage());
+        }
+        deleteImage(imageName);
+        return savePost(postDto, user, fileName);
+    }
+
+    private PostDto savePost(PostDto postDto, User user, String fileName) {
+        Post createdPost = postMapper.toEntity(postDto);
+        createdPost.setImageName(fileName);
         createdPost.setUser(user);
         postRepository.save(createdPost);
         PostDto savedPostDto = postMapper.toDto(createdPost);
+        imageLinkService.resolveLinks(savedPostDto);
 
-        kafkaSenderService.send(savedPostDto, user.getId());
+        postOutboxService.enqueue(savedPostDto, user.getId(), OutboxEventType.POST_CREATED);
+        eventPublisher.publishEvent(new PostChangedEvent(createdPost.getId(), user.getId(), createdPost.getCreatedAt(), OutboxEventType.POST_CREATED));
+        if (fileName != null) {
+            eventPublisher.publishEvent(new ImageUploadedEvent(createdPost.getId(), fileName));
+        }
 
         return savedPostDto;
     }
@@ -88,20 +194,23 @@ public class PostServiceImpl implements PostService {
             updatePost.setImageName(null);
             updatePost.setImageLink(null);
         } else {
-            String fileName = checkAndSaveImageAtMinioAndGetFilename(file);
-            updatePost.setImageLink(getUrlImage(fileName));
-            updatePost.setImageName(fileName);
+            updatePost.setImageName(checkAndSaveImageAtMinioAndGetFilename(file));
         }
 
         if (post.getImageName() != null) {
-            deleteImage(post.getImageName());
+            deleteImageWithVariants(post);
         }
         updatePost.setId(postId);
         updatePost.setUser(post.getUser());
         postRepository.save(updatePost);
         PostDto updatedPostDto = postMapper.toDto(updatePost);
+        imageLinkService.resolveLinks(updatedPostDto);
 
-        kafkaSenderService.send(updatedPostDto, post.getUser().getId());
+        postOutboxService.enqueue(updatedPostDto, post.getUser().getId(), OutboxEventType.POST_UPDATED);
+        eventPublisher.publishEvent(new PostChangedEvent(postId, post.getUser().getId(), updatePost.getCreatedAt(), OutboxEventType.POST_UPDATED));
+        if (updatePost.getImageName() != null) {
+            eventPublisher.publishEvent(new ImageUploadedEvent(postId, updatePost.getImageName()));
+        }
 
         return updatedPostDto;
     }
@@ -111,8 +220,17 @@ public class PostServiceImpl implements PostService {
     public Long deletePost(Long postId) {
         Post post = checkAccessReturnPostId(postId);
         if (post.getImageName() != null) {
-            deleteImage(post.getImageName());
+            deleteImageWithVariants(post);
         }
+        postOutboxService.cancelPendingUpdates(postId);
+        postOutboxService.enqueue(postMapper.toDto(post), post.getUser().getId(), OutboxEventType.POST_DELETED);
+        eventPublisher.publishEvent(new PostChangedEvent(postId, post.getUser().getId(), post.getCreatedAt(), OutboxEventType.POST_DELETED));
+        deletedPostRepository.save(DeletedPost.builder()
+                .postId(postId)
+                .userId(post.getUser().getId())
+                .postCreatedAt(post.getCreatedAt())
+                .deletedAt(LocalDateTime.now())
+                .build());
         postRepository.delete(post);
         return post.getId();
     }
@@ -122,9 +240,99 @@ public class PostServiceImpl implements PostService {
     public List<PostDto> getFeedUser(Pageable pageable) {
         String name = SecurityContextHolder.getContext().getAuthentication().getName();
         User user = userRepository.findByName(name).orElseThrow(UserNotFoundException::new);
-        Page<Post> lastPostsFollowers = postRepository.getLastPostsFollowers(user.getId(), pageable);
-        List<Post> content = lastPostsFollowers.getContent();
-        return postMapper.toListDto(content);
+        return cachedFeed(user.getId(), offsetPage(pageable), () -> loadFeed(user.getId(), pageable));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<PostDto> getRankedFeedUser(int page, int size) {
+        if (page < 0 || size < 1) {
+            throw new BadInputDataException("Page must not be negative and size must be positive");
+        }
+        String name = SecurityContextHolder.getContext().getAuthentication().getName();
+        User user = userRepository.findByName(name).orElseThrow(UserNotFoundException::new);
+        FeedRankingService ranking = feedRankingService.getIfAvailable();
+        if (ranking == null) {
+            Pageable pageable = PageRequest.of(page, size, Sort.by("created_at").descending());
+            return cachedFeed(user.getId(), offsetPage(pageable), () -> loadFeed(user.getId(), pageable));
+        }
+        List<Long> postIds = ranking.getRankedPostIds(user.getId(), page, size);
+        Map<Long, Post> posts = postRepository.findAllById(postIds).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        return postMapper.toListDto(postIds.stream().map(posts::get).filter(Objects::nonNull).toList());
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public FeedPageDto getFeedUserByCursor(String cursor, int size) {
+        if (size < 1) {
+            throw new BadInputDataException("Size must be positive");
+        }
+        String name = SecurityContextHolder.getContext().getAuthentication().getName();
+        User user = userRepository.findByName(name).orElseThrow(UserNotFoundException::new);
+        // capped before the cache key is built, so oversized requests share the cached page of max-size
+        int pageSize = Math.min(size, feedCursorProperties.getMaxSize());
+        return cachedFeed(user.getId(), cursorPage(cursor, pageSize), () -> loadFeedByCursor(user.getId(), cursor, pageSize));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void warmFeed(Long userId, int pageSize, int cursorPageSize) {
+        FeedCacheService feedCache = feedCacheService.getIfAvailable();
+        if (feedCache == null) {
+            return;
+        }
+        Pageable firstPage = PageRequest.of(0, pageSize, Sort.by("created_at").descending());
+        feedCache.warm(userId, offsetPage(firstPage), () -> loadFeed(userId, firstPage));
+        feedCache.warm(userId, cursorPage(null, cursorPageSize), () -> loadFeedByCursor(userId, null, cursorPageSize));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public FeedDeltaDto getFeedUserSince(Long sincePostId, LocalDateTime since, LocalDateTime deletedSince, Long deletedAfterPostId, int limit) {
+        if (limit < 1) {
+            throw new BadInputDataException("Limit must be positive");
+        }
+        String name = SecurityContextHolder.getContext().getAuthentication().getName();
+        User user = userRepository.findByName(name).orElseThrow(UserNotFoundException::new);
+
+        LocalDateTime watermark = since;
+        if (watermark == null && sincePostId != null) {
+            watermark = postRepository.findById(sincePostId).map(Post::getCreatedAt)
+                    .or(() -> deletedPostRepository.findById(sincePostId).map(DeletedPost::getPostCreatedAt))
+                    .orElseThrow(PostNotFoundException::new);
+        }
+        if (watermark == null) {
+            throw new BadInputDataException("Either since or sincePostId must be specified");
+        }
+        // without a post id every post created exactly at the watermark is already known to the client
+        long afterId = sincePostId != null ? sincePostId : Long.MAX_VALUE;
+
+        int pageSize = Math.min(limit, feedDeltaProperties.getMaxLimit());
+        Slice<Post> slice = postRepository.getFeedSliceSince(user.getId(), watermark, afterId, PageRequest.ofSize(pageSize));
+        List<Post> posts = slice.getContent();
+        Post newest = posts.isEmpty() ? null : posts.get(posts.size() - 1);
+
+        // deletions have their own watermark, otherwise every poll without new posts would repeat all tombstones
+        LocalDateTime deletedWatermark = deletedSince != null ? deletedSince : watermark;
+        // post ids are positive, so without one every tombstone deleted exactly at the watermark is returned
+        long deletedAfterId = deletedSince != null && deletedAfterPostId != null ? deletedAfterPostId : 0L;
+        List<DeletedPostRepository.Tombstone> tombstones = deletedPostRepository.getTombstonesSince(user.getId(), deletedWatermark,
+                deletedAfterId, pageSize + 1);
+        boolean moreTombstones = tombstones.size() > pageSize;
+        if (moreTombstones) {
+            tombstones = tombstones.subList(0, pageSize);
+        }
+        DeletedPostRepository.Tombstone lastTombstone = tombstones.isEmpty() ? null : tombstones.get(tombstones.size() - 1);
+        return FeedDeltaDto.builder()
+                .posts(postMapper.toListDto(posts))
+                .deletedPostIds(tombstones.stream().map(DeletedPostRepository.Tombstone::getPostId).toList())
+                .newestPostId(newest != null ? newest.getId() : sincePostId)
+                .newestCreatedAt(newest != null ? newest.getCreatedAt() : watermark)
+                .deletedUntil(lastTombstone != null ? lastTombstone.getDeletedAt() : deletedWatermark)
+                .deletedUntilPostId(lastTombstone != null ? lastTombstone.getPostId() : deletedAfterId)
+                .hasMore(slice.hasNext() || moreTombstones)
+                .build();
     }
 
     @Transactional(readOnly = true)
@@ -134,6 +342,43 @@ public class PostServiceImpl implements PostService {
         return postMapper.toListDto(postRepository.findAll());
     }
 
+    private static String offsetPage(Pageable pageable) {
+        return "offset:" + pageable.getPageNumber() + ":" + pageable.getPageSize() + ":" + pageable.getSort();
+    }
+
+    private static String cursorPage(String cursor, int size) {
+        return "cursor:" + (cursor == null || cursor.isBlank() ? "" : cursor) + ":" + size;
+    }
+
+    private <T> T cachedFeed(Long userId, String page, Supplier<T> loader) {
+        FeedCacheService feedCache = feedCacheService.getIfAvailable();
+        return feedCache == null ? loader.get() : feedCache.get(userId, page, loader);
+    }
+
+    private List<PostDto> loadFeed(Long userId, Pageable pageable) {
+        return Optional.ofNullable(timelineService.getIfAvailable())
+                .flatMap(timeline -> timeline.getFeed(userId, pageable))
+                .orElseGet(() -> {
+                    Page<Post> lastPostsFollowers = postRepository.getLastPostsFollowers(userId, pageable);
+                    List<Post> content = lastPostsFollowers.getContent();
+                    return postMapper.toListDto(content);
+                });
+    }
+
+    private FeedPageDto loadFeedByCursor(Long userId, String cursor, int size) {
+        Pageable limit = PageRequest.ofSize(size);
+        Slice<Post> slice;
+        if (cursor == null || cursor.isBlank()) {
+            slice = postRepository.getFeedSlice(userId, limit);
+        } else {
+            FeedCursor after = FeedCursor.decode(cursor);
+            slice = postRepository.getFeedSliceAfter(userId, after.createdAt(), after.id(), limit);
+        }
+        List<PostDto> posts = postMapper.toListDto(slice.getContent());
+        String nextCursor = slice.hasNext() ? FeedCursor.of(posts.get(posts.size() - 1)).encode() : null;
+        return new FeedPageDto(posts, nextCursor, slice.hasNext());
+    }
+
     public Post checkAccessReturnPostId(Long postId) throws AccessDeniedException, PostNotFoundException {
         Post post = postRepository.findById(postId).orElseThrow(PostNotFoundException::new);
         String name = SecurityContextHolder.getContext().getAuthentication().getName();
@@ -160,12 +405,20 @@ public class PostServiceImpl implements PostService {
         if (!isValid(file)) {
             throw new BadInputDataException("Incorrect input file");
         }
-        String fileName = generateFileName(file);
-        InputStream inputStream;
+        String fileName;
         try {
-            inputStream = file.getInputStream();
-            saveImage(inputStream, fileName);
-            inputStream.close();
+            fileName = generateFileName(file);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new BadInputDataException("Image upload failed: " + e.getMessage());
+        }
+        // the upsert locks the row until commit, a concurrent upload of the same content waits here and
+        // finds the object stored, or uploads it itself if this transaction is rolled back
+        storedImageRepository.acquire(fileName, file.getSize(), file.getContentType());
+        if (storedImageRepository.getRefCount(fileName).orElse(1) > 1) {
+            return fileName;
+        }
+        try {
+            saveImage(file, fileName);
         } catch (Exception e) {
             throw new BadInputDataException("Image upload failed: " + e.getMessage());
         }
@@ -202,31 +455,74 @@ public class PostServiceImpl implements PostService {
         }
     }
 
-    private String generateFileName(final MultipartFile file) {
-        String name = file.getOriginalFilename();
-        return UUID.randomUUID() + ": <" + LocalDateTime.now() + "> " + name;
+    /**
+     * Names the object after the SHA-256 of its content, so the same image uploaded by many posts is stored once.
+     * The part is read twice, here and by the upload, but it is already on disk and only the digest is kept.
+     */
+    private String generateFileName(final MultipartFile file) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream inputStream = file.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        String extension = "image/png".equals(file.getContentType()) ? ".png" : ".jpg";
+        return "sha256/" + HexFormat.of().formatHex(digest.digest()) + extension;
     }
 
     @SneakyThrows
-    private void saveImage(final InputStream inputStream,
+    private void saveImage(final MultipartFile file,
                            final String fileName) {
-        minioClient.putObject(PutObjectArgs.builder()
-                .stream(inputStream, inputStream.available(), -1)
-                .bucket(minioProperties.getBucket())
-                .object(fileName)
-                .build());
+        // the part is spooled to disk by the servlet container, a known size lets MinIO stream it in parts
+        // of part-size, an unknown one (-1) is uploaded in chunks of part-size until the stream ends
+        long partSize = Math.max(minioProperties.getPartSize(), ObjectWriteArgs.MIN_MULTIPART_SIZE);
+        long objectSize = file.getSize() > 0 ? file.getSize() : -1;
+        try (InputStream inputStream = file.getInputStream()) {
+            minioClient.putObject(PutObjectArgs.builder()
+                    .stream(inputStream, objectSize, partSize)
+                    .contentType(file.getContentType())
+                    .bucket(minioProperties.getBucket())
+                    .object(fileName)
+                    .build());
+        }
+    }
+
+    private static String uploadPrefix(User user) {
+        return user.getId() + "/";
     }
 
     @SneakyThrows
-    private String getUrlImage(String fileName) {
+    private String getUploadUrl(String fileName, int expiry) {
         return minioClient.getPresignedObjectUrl(
                 GetPresignedObjectUrlArgs.builder()
-                        .method(Method.GET)
+                        .method(Method.PUT)
                         .bucket(minioProperties.getBucket())
                         .object(fileName)
+                        .expiry(expiry)
                         .build());
     }
 
+    private void deleteImageWithVariants(Post post) {
+        if (!releaseImage(post.getImageName())) {
+            // other posts still show the same content, the variants are shared with them as well
+            return;
+        }
+        deleteImage(post.getImageName());
+        if (post.getImageVariants() != null) {
+            post.getImageVariants().values().forEach(variant -> deleteImage(variant.getImageName()));
+        }
+    }
+
+    private boolean releaseImage(String fileName) {
+        if (storedImageRepository.release(fileName) == 0) {
+            // uploaded before images were content-addressed or through a presigned URL, owned by this post only
+            return true;
+        }
+        return storedImageRepository.deleteUnreferenced(fileName) > 0;
+    }
+
     @SneakyThrows
     private void deleteImage(String fileName) {
         minioClient.removeObject(RemoveObjectArgs.builder()
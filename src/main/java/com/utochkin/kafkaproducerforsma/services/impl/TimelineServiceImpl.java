@@ -0,0 +1,423 @@
+package com.utochkin.kafkaproducerforsma.services.impl;
+
+import com.utochkin.kafkaproducerforsma.config.ExecutorConfig;
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.events.FollowersChangedEvent;
+import com.utochkin.kafkaproducerforsma.events.PostChangedEvent;
+import com.utochkin.kafkaproducerforsma.mappers.PostMapper;
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
+import com.utochkin.kafkaproducerforsma.props.TimelineProperties;
+import com.utochkin.kafkaproducerforsma.repository.PostRepository;
+import com.utochkin.kafkaproducerforsma.repository.UserRepository;
+import com.utochkin.kafkaproducerforsma.services.interfaces.TimelineService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.*;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a capped sorted set of post ids per user ({@code timeline:<userId>}, scored by creation time in epoch
+ * millis) and caches post bodies under {@code post:<postId>}. Timelines are built from SQL on the first read
+ * and afterwards kept up to date by pushing created, updated and deleted posts to the followers of the author.
+ * Pushes only touch timelines that already exist, so a timeline is either complete up to its cap or absent.
+ * A backfill first creates the set with a {@code BACKFILLING} placeholder, so posts committed while the SQL runs
+ * are pushed into it, and reads go to the database until the placeholder is removed.
+ * <p>
+ * Authors with at least {@code celebrity-threshold} followers are not pushed: their posts go to a single
+ * {@code author:<userId>} set and are merged into the timeline of each follower at read time. An author is
+ * demoted below {@code celebrity-demote-threshold}, after which the timelines of the followers are rebuilt.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "feed.timeline", name = "enabled", havingValue = "true")
+public class TimelineServiceImpl implements TimelineService {
+
+    static final String TIMELINE_KEY = "timeline:";
+    static final String POST_KEY = "post:";
+    static final String AUTHOR_KEY = "author:";
+    static final String CELEBRITIES_KEY = "celebrities";
+    private static final String CREATED_AT = "created_at";
+    // not a post id, hydration would skip it anyway
+    static final String BACKFILLING = "0";
+
+    private static final RedisScript<Long> PUSH_SCRIPT = new DefaultRedisScript<>("""
+            local pushed = 0
+            for _, key in ipairs(KEYS) do
+                if redis.call('EXISTS', key) == 1 then
+                    redis.call('ZADD', key, ARGV[1], ARGV[2])
+                    redis.call('ZREMRANGEBYRANK', key, 0, -(tonumber(ARGV[3]) + 1))
+                    pushed = pushed + 1
+                end
+            end
+            return pushed
+            """, Long.class);
+
+    private static final RedisScript<Long> REMOVE_SCRIPT = new DefaultRedisScript<>("""
+            local removed = 0
+            for _, key in ipairs(KEYS) do
+                removed = removed + redis.call('ZREM', key, ARGV[1])
+            end
+            return removed
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisTemplate<String, PostDto> postDtoRedisTemplate;
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+    private final PostMapper postMapper;
+    private final TimelineProperties timelineProperties;
+    private final Executor executor;
+    private final Counter timelineReads;
+    private final Counter mergedReads;
+    private final Counter fallbacks;
+    private final Counter backfills;
+    private final Counter pushedWrites;
+    private final Counter pulledWrites;
+    private final DistributionSummary mergedSources;
+
+    public TimelineServiceImpl(StringRedisTemplate redisTemplate,
+                               RedisTemplate<String, PostDto> postDtoRedisTemplate,
+                               PostRepository postRepository,
+                               UserRepository userRepository,
+                               PostMapper postMapper,
+                               TimelineProperties timelineProperties,
+                               @Qualifier(ExecutorConfig.TIMELINE_EXECUTOR) Executor executor,
+                               MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.postDtoRedisTemplate = postDtoRedisTemplate;
+        this.postRepository = postRepository;
+        this.userRepository = userRepository;
+        this.postMapper = postMapper;
+        this.timelineProperties = timelineProperties;
+        this.executor = executor;
+        this.timelineReads = meterRegistry.counter("feed.timeline.reads", "path", "timeline");
+        this.mergedReads = meterRegistry.counter("feed.timeline.reads", "path", "merged");
+        this.fallbacks = meterRegistry.counter("feed.timeline.reads", "path", "fallback");
+        this.backfills = meterRegistry.counter("feed.timeline.backfills");
+        this.pushedWrites = meterRegistry.counter("feed.timeline.writes", "path", "push");
+        this.pulledWrites = meterRegistry.counter("feed.timeline.writes", "path", "pull");
+        this.mergedSources = DistributionSummary.builder("feed.timeline.merge.sources")
+                .description("Celebrity authors merged into a single feed read")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Optional<List<PostDto>> getFeed(Long userId, Pageable pageable) {
+        Sort.Order order = pageable.getSort().getOrderFor(CREATED_AT);
+        long offset = pageable.getOffset();
+        long end = offset + pageable.getPageSize() - 1;
+        if (order == null || end >= timelineProperties.getMaxSize()) {
+            fallbacks.increment();
+            return Optional.empty();
+        }
+
+        try {
+            String key = TIMELINE_KEY + userId;
+            ZSetOperations<String, String> timeline = redisTemplate.opsForZSet();
+            Long size = timeline.zCard(key);
+            if (size == null || size == 0) {
+                size = backfill(userId, key);
+            } else if (timeline.score(key, BACKFILLING) != null) {
+                // another read is still backfilling, the set holds only the posts pushed meanwhile
+                size = 0L;
+            }
+            if (size == 0) {
+                fallbacks.increment();
+                return Optional.empty();
+            }
+            List<Long> celebrities = followedCelebrities(userId);
+            if (celebrities.isEmpty()) {
+                if (order.isAscending() && size >= timelineProperties.getMaxSize()) {
+                    // the oldest posts were trimmed away, only the database knows them
+                    fallbacks.increment();
+                    return Optional.empty();
+                }
+                Set<String> postIds = order.isDescending()
+                        ? timeline.reverseRange(key, offset, end)
+                        : timeline.range(key, offset, end);
+                redisTemplate.expire(key, timelineProperties.getTtl());
+                timelineReads.increment();
+                return Optional.of(hydrate(postIds));
+            }
+
+            if (order.isAscending()) {
+                fallbacks.increment();
+                return Optional.empty();
+            }
+            List<List<ZSetOperations.TypedTuple<String>>> sources = new ArrayList<>();
+            sources.add(toList(timeline.reverseRangeWithScores(key, 0, end)));
+            sources.addAll(authorPosts(celebrities, end));
+            redisTemplate.expire(key, timelineProperties.getTtl());
+            mergedReads.increment();
+            mergedSources.record(celebrities.size());
+            return Optional.of(hydrate(merge(sources, offset, pageable.getPageSize())));
+        } catch (DataAccessException e) {
+            log.warn("Timeline of user with id = {} is unavailable, reading feed from database: {}", userId, e.getMessage());
+            fallbacks.increment();
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void evict(Long userId) {
+        try {
+            redisTemplate.delete(TIMELINE_KEY + userId);
+        } catch (DataAccessException e) {
+            log.warn("Failed to evict timeline of user with id = {}: {}", userId, e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener
+    public void onPostChanged(PostChangedEvent event) {
+        try {
+            executor.execute(() -> pushToFollowers(event));
+        } catch (RejectedExecutionException e) {
+            // never pushed on the request thread, the post reaches timelines built or rebuilt from SQL
+            log.warn("Push of post with id = {} to timelines dropped: {}", event.postId(), e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener
+    public void onFollowersChanged(FollowersChangedEvent event) {
+        evict(event.followerId());
+    }
+
+    void pushToFollowers(PostChangedEvent event) {
+        try {
+            if (event.type() != OutboxEventType.POST_CREATED) {
+                postDtoRedisTemplate.delete(POST_KEY + event.postId());
+            }
+            String postId = event.postId().toString();
+            String score = Long.toString(score(event.createdAt()));
+            String maxSize = Integer.toString(timelineProperties.getMaxSize());
+            if (isCelebrity(event.authorId())) {
+                List<String> authorKey = List.of(AUTHOR_KEY + event.authorId());
+                if (event.type() == OutboxEventType.POST_DELETED) {
+                    redisTemplate.execute(REMOVE_SCRIPT, authorKey, postId);
+                } else {
+                    redisTemplate.execute(PUSH_SCRIPT, authorKey, score, postId, maxSize);
+                }
+                pulledWrites.increment();
+            } else {
+                if (event.type() == OutboxEventType.POST_DELETED) {
+                    forEachFollowerChunk(event.authorId(), keys -> redisTemplate.execute(REMOVE_SCRIPT, keys, postId));
+                } else {
+                    forEachFollowerChunk(event.authorId(), keys -> redisTemplate.execute(PUSH_SCRIPT, keys, score, postId, maxSize));
+                }
+                pushedWrites.increment();
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to push post with id = {} to timelines: {}", event.postId(), e.getMessage());
+        }
+    }
+
+    private boolean isCelebrity(Long authorId) {
+        String author = authorId.toString();
+        boolean celebrity = Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(CELEBRITIES_KEY, author));
+        long followers = userRepository.countFollowersUpTo(authorId, timelineProperties.getCelebrityThreshold());
+        if (!celebrity && followers >= timelineProperties.getCelebrityThreshold()) {
+            seedAuthorPosts(authorId);
+            redisTemplate.opsForSet().add(CELEBRITIES_KEY, author);
+            log.info("Author with id = {} has {} followers, posts are now merged into feeds at read time.", authorId, followers);
+            return true;
+        }
+        if (celebrity && followers < timelineProperties.getCelebrityDemoteThreshold()) {
+            redisTemplate.opsForSet().remove(CELEBRITIES_KEY, author);
+            redisTemplate.delete(AUTHOR_KEY + authorId);
+            // followers' timelines never received the posts of this author, let them be rebuilt from SQL
+            forEachFollowerChunk(authorId, redisTemplate::delete);
+            log.info("Author with id = {} has {} followers, posts are now pushed to timelines.", authorId, followers);
+            return false;
+        }
+        return celebrity;
+    }
+
+    private List<Long> followedCelebrities(Long userId) {
+        Set<String> celebrities = redisTemplate.opsForSet().members(CELEBRITIES_KEY);
+        if (celebrities == null || celebrities.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return userRepository.getFollowedAmong(userId, celebrities.stream().map(Long::valueOf).toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<ZSetOperations.TypedTuple<String>>> authorPosts(List<Long> authorIds, long end) {
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                ZSetOperations<String, String> authors = (ZSetOperations<String, String>) operations.opsForZSet();
+                authorIds.forEach(authorId -> authors.reverseRangeWithScores(AUTHOR_KEY + authorId, 0, end));
+                return null;
+            }
+        });
+
+        List<List<ZSetOperations.TypedTuple<String>>> sources = new ArrayList<>();
+        for (int i = 0; i < authorIds.size(); i++) {
+            List<ZSetOperations.TypedTuple<String>> posts = toList((Set<ZSetOperations.TypedTuple<String>>) results.get(i));
+            if (posts.isEmpty()) {
+                posts = seedAuthorPosts(authorIds.get(i));
+            }
+            sources.add(posts.subList(0, (int) Math.min(posts.size(), end + 1)));
+        }
+        return sources;
+    }
+
+    private List<ZSetOperations.TypedTuple<String>> seedAuthorPosts(Long authorId) {
+        List<ZSetOperations.TypedTuple<String>> posts = toTuples(
+                postRepository.getLastPostIdsOfAuthor(authorId, timelineProperties.getMaxSize()));
+        if (!posts.isEmpty()) {
+            redisTemplate.opsForZSet().add(AUTHOR_KEY + authorId, new HashSet<>(posts));
+        }
+        return posts;
+    }
+
+    /**
+     * K-way merge of score-descending sources. A post present in several sources is taken once, with its highest score.
+     */
+    static List<String> merge(List<List<ZSetOperations.TypedTuple<String>>> sources, long offset, int limit) {
+        PriorityQueue<MergeHead> heads = new PriorityQueue<>(Comparator
+                .comparing((MergeHead head) -> head.tuple().getScore(), Comparator.reverseOrder())
+                .thenComparing(head -> Long.valueOf(head.tuple().getValue()), Comparator.reverseOrder()));
+        sources.stream()
+                .filter(source -> !source.isEmpty())
+                .forEach(source -> heads.add(new MergeHead(source, 0)));
+
+        Set<String> seen = new HashSet<>();
+        List<String> page = new ArrayList<>(limit);
+        long skipped = 0;
+        while (!heads.isEmpty() && page.size() < limit) {
+            MergeHead head = heads.poll();
+            if (head.index() + 1 < head.source().size()) {
+                heads.add(new MergeHead(head.source(), head.index() + 1));
+            }
+            String postId = head.tuple().getValue();
+            if (!seen.add(postId)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page.add(postId);
+            }
+        }
+        return page;
+    }
+
+    private record MergeHead(List<ZSetOperations.TypedTuple<String>> source, int index) {
+        ZSetOperations.TypedTuple<String> tuple() {
+            return source.get(index);
+        }
+    }
+
+    private void forEachFollowerChunk(Long authorId, Consumer<List<String>> action) {
+        long lastFollowerId = 0L;
+        List<Long> followerIds;
+        do {
+            followerIds = userRepository.getFollowerIdsAfter(authorId, lastFollowerId, timelineProperties.getFanOutChunkSize());
+            if (!followerIds.isEmpty()) {
+                action.accept(followerIds.stream().map(id -> TIMELINE_KEY + id).toList());
+                lastFollowerId = followerIds.get(followerIds.size() - 1);
+            }
+        } while (followerIds.size() == timelineProperties.getFanOutChunkSize());
+    }
+
+    private long backfill(Long userId, String key) {
+        ZSetOperations<String, String> timeline = redisTemplate.opsForZSet();
+        // the set exists before the SQL read, a post committed after the read is pushed into it instead of skipped;
+        // the TTL removes the set if this node dies before the placeholder is taken out
+        timeline.add(key, BACKFILLING, Double.NEGATIVE_INFINITY);
+        redisTemplate.expire(key, timelineProperties.getTtl());
+        try {
+            List<PostRepository.TimelineEntry> entries = postRepository.getLastPostIdsFollowers(userId, timelineProperties.getMaxSize());
+            if (!entries.isEmpty()) {
+                timeline.add(key, new HashSet<>(toTuples(entries)));
+                backfills.increment();
+            }
+        } finally {
+            timeline.remove(key, BACKFILLING);
+        }
+        timeline.removeRange(key, 0, -(timelineProperties.getMaxSize() + 1));
+        Long size = timeline.zCard(key);
+        return size == null ? 0 : size;
+    }
+
+    private static List<ZSetOperations.TypedTuple<String>> toTuples(List<PostRepository.TimelineEntry> entries) {
+        return entries.stream()
+                .<ZSetOperations.TypedTuple<String>>map(entry -> new DefaultTypedTuple<>(entry.getId().toString(), entry.getScore().doubleValue()))
+                .toList();
+    }
+
+    private static List<ZSetOperations.TypedTuple<String>> toList(Set<ZSetOperations.TypedTuple<String>> tuples) {
+        return tuples == null ? Collections.emptyList() : new ArrayList<>(tuples);
+    }
+
+    private List<PostDto> hydrate(Collection<String> postIds) {
+        if (postIds == null || postIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> ids = new ArrayList<>(postIds);
+        List<PostDto> cached = postDtoRedisTemplate.opsForValue()
+                .multiGet(ids.stream().map(id -> POST_KEY + id).toList());
+
+        Map<Long, PostDto> posts = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            PostDto post = cached == null ? null : cached.get(i);
+            if (post == null) {
+                missing.add(Long.valueOf(ids.get(i)));
+            } else {
+                posts.put(post.getId(), post);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Long, PostDto> loaded = postMapper.toListDto(postRepository.findAllById(missing)).stream()
+                    .collect(Collectors.toMap(PostDto::getId, Function.identity()));
+            cache(loaded);
+            posts.putAll(loaded);
+        }
+
+        // ids of posts deleted after the page was read are simply skipped
+        return ids.stream()
+                .map(id -> posts.get(Long.valueOf(id)))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void cache(Map<Long, PostDto> posts) {
+        if (posts.isEmpty()) {
+            return;
+        }
+        postDtoRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                ValueOperations<String, PostDto> values = (ValueOperations<String, PostDto>) operations.opsForValue();
+                posts.forEach((id, post) -> values.set(POST_KEY + id, post, timelineProperties.getPostTtl()));
+                return null;
+            }
+        });
+    }
+
+    static long score(LocalDateTime createdAt) {
+        return createdAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
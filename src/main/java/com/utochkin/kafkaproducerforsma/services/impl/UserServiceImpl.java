@@ -1,6 +1,7 @@
 package com.utochkin.kafkaproducerforsma.services.impl;
 
 import com.utochkin.kafkaproducerforsma.dto.UserDto;
+import com.utochkin.kafkaproducerforsma.events.FollowersChangedEvent;
 import com.utochkin.kafkaproducerforsma.exceptions.AccessDeniedException;
 import com.utochkin.kafkaproducerforsma.exceptions.BadInputDataException;
 import com.utochkin.kafkaproducerforsma.exceptions.ChatNotFoundException;
@@ -11,6 +12,7 @@ import com.utochkin.kafkaproducerforsma.models.User;
 import com.utochkin.kafkaproducerforsma.repository.UserRepository;
 import com.utochkin.kafkaproducerforsma.services.interfaces.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -29,6 +31,7 @@ public class UserServiceImpl implements UserService {
     private final PasswordEncoder passwordEncoder;
     private final UserMapper userMapper;
     private final ChatServiceImpl chatService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(readOnly = true)
     @Override
@@ -61,6 +64,7 @@ public class UserServiceImpl implements UserService {
         }
         userTo.addFollower(userFrom);
         userTo.addFriendRequest(userFrom);
+        eventPublisher.publishEvent(new FollowersChangedEvent(userFrom.getId()));
         return userFrom.getId();
     }
 
@@ -78,6 +82,7 @@ public class UserServiceImpl implements UserService {
         }
         userAccepted.addFriend(userSendedRequest);
         userSendedRequest.addFollower(userAccepted);
+        eventPublisher.publishEvent(new FollowersChangedEvent(userAccepted.getId()));
         return userAccepted.getId();
     }
 
@@ -107,6 +112,7 @@ public class UserServiceImpl implements UserService {
             throw new BadInputDataException(String.format("User with id = %s not have follower on id = %s", userId, userRefused.getId()));
         }
         user.deleteFollower(userRefused);
+        eventPublisher.publishEvent(new FollowersChangedEvent(userRefused.getId()));
         return userRefused.getId();
     }
 
@@ -122,6 +128,7 @@ public class UserServiceImpl implements UserService {
         }
         user.deleteFriend(userDeleted);
         userDeleted.deleteFollower(user);
+        eventPublisher.publishEvent(new FollowersChangedEvent(user.getId()));
 
         if (user.getChats().stream()
                 .anyMatch(chat -> userDeleted.getChats().contains(chat))) {
@@ -0,0 +1,12 @@
+package com.utochkin.kafkaproducerforsma.services.interfaces;
+
+import java.util.function.Supplier;
+
+public interface FeedCacheService {
+
+    <T> T get(Long userId, String page, Supplier<T> loader);
+
+    <T> void warm(Long userId, String page, Supplier<T> loader);
+
+    void invalidate(Long userId);
+}
@@ -0,0 +1,8 @@
+package com.utochkin.kafkaproducerforsma.services.interfaces;
+
+import com.utochkin.kafkaproducerforsma.dto.FeedUpdateDto;
+
+public interface FeedPushService {
+
+    int pushToConnectedFollowers(FeedUpdateDto update);
+}
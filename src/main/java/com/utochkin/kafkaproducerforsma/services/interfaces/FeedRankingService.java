@@ -0,0 +1,10 @@
+package com.utochkin.kafkaproducerforsma.services.interfaces;
+
+import java.util.List;
+
+public interface FeedRankingService {
+
+    List<Long> getRankedPostIds(Long userId, int page, int size);
+
+    void evict(Long userId);
+}
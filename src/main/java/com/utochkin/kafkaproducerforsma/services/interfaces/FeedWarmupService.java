@@ -0,0 +1,6 @@
+package com.utochkin.kafkaproducerforsma.services.interfaces;
+
+public interface FeedWarmupService {
+
+    void recordActivity(Long userId);
+}
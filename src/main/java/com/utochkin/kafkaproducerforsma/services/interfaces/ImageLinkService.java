@@ -0,0 +1,18 @@
+package com.utochkin.kafkaproducerforsma.services.interfaces;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ImageLinkService {
+
+    Map<String, String> getLinks(Collection<String> imageNames);
+
+    void resolveLinks(Collection<PostDto> posts);
+
+    default void resolveLinks(PostDto post) {
+        resolveLinks(List.of(post));
+    }
+}
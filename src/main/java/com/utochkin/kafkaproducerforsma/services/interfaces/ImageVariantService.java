@@ -0,0 +1,6 @@
+package com.utochkin.kafkaproducerforsma.services.interfaces;
+
+public interface ImageVariantService {
+
+    void createVariants(Long postId, String imageName);
+}
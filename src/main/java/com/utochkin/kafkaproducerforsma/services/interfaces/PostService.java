@@ -1,16 +1,24 @@
 package com.utochkin.kafkaproducerforsma.services.interfaces;
 
 
+import com.utochkin.kafkaproducerforsma.dto.FeedDeltaDto;
+import com.utochkin.kafkaproducerforsma.dto.FeedPageDto;
+import com.utochkin.kafkaproducerforsma.dto.ImageUploadDto;
 import com.utochkin.kafkaproducerforsma.dto.PostDto;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface PostService {
 
     PostDto createPost(PostDto postDto, MultipartFile file);
 
+    ImageUploadDto createImageUploadUrl(String fileName, String contentType);
+
+    PostDto createPostWithUploadedImage(PostDto postDto, String imageName);
+
     PostDto getPost(Long postId);
 
     PostDto updatePost(Long postId, PostDto postDto, MultipartFile file);
@@ -19,5 +27,13 @@ public interface PostService {
 
     List<PostDto> getFeedUser(Pageable paging);
 
+    List<PostDto> getRankedFeedUser(int page, int size);
+
+    FeedPageDto getFeedUserByCursor(String cursor, int size);
+
+    FeedDeltaDto getFeedUserSince(Long sincePostId, LocalDateTime since, LocalDateTime deletedSince, Long deletedAfterPostId, int limit);
+
+    void warmFeed(Long userId, int pageSize, int cursorPageSize);
+
     List <PostDto> getAllPosts ();
 }
@@ -0,0 +1,14 @@
+package com.utochkin.kafkaproducerforsma.services.interfaces;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface TimelineService {
+
+    Optional<List<PostDto>> getFeed(Long userId, Pageable pageable);
+
+    void evict(Long userId);
+}
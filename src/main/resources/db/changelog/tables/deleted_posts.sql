@@ -0,0 +1,9 @@
+create table if not exists deleted_posts
+(
+    post_id         bigint primary key,
+    user_id         bigint    not null,
+    post_created_at timestamp,
+    deleted_at      timestamp not null
+);
+
+create index if not exists deleted_posts_user_id_deleted_at_idx on deleted_posts (user_id, deleted_at);
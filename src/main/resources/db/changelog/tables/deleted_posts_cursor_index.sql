@@ -0,0 +1,3 @@
+create index if not exists deleted_posts_user_id_deleted_at_post_id_idx on deleted_posts (user_id, deleted_at, post_id);
+
+drop index if exists deleted_posts_user_id_deleted_at_idx;
@@ -0,0 +1,3 @@
+create index if not exists followers_follower_id_user_id_idx on followers (follower_id, user_id);
+
+create index if not exists messages_chat_id_id_idx on messages (chat_id, id);
@@ -0,0 +1,8 @@
+create table if not exists images
+(
+    name         varchar(255) primary key,
+    ref_count    integer   not null,
+    size         bigint,
+    content_type varchar(64),
+    created_at   timestamp not null
+);
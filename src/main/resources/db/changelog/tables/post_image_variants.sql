@@ -0,0 +1,8 @@
+create table if not exists post_image_variants
+(
+    post_id    bigint       not null references posts (id) on delete cascade,
+    variant    varchar(32)  not null,
+    image_name varchar(255) not null,
+    image_link varchar(512),
+    primary key (post_id, variant)
+);
@@ -0,0 +1,17 @@
+create table if not exists post_outbox
+(
+    id              bigserial primary key,
+    event_type      varchar(32) not null,
+    user_id         bigint      not null,
+    post_id         bigint,
+    description     varchar(255),
+    message         varchar(255),
+    image_link      varchar(512),
+    image_name      varchar(255),
+    author_name     varchar(255),
+    post_created_at timestamp,
+    created_at      timestamp   not null,
+    published_at    timestamp
+);
+
+create index if not exists post_outbox_pending_idx on post_outbox (id) where published_at is null;
@@ -0,0 +1,11 @@
+alter table post_outbox
+    add column if not exists available_at timestamp;
+
+update post_outbox
+set available_at = created_at
+where available_at is null;
+
+alter table post_outbox
+    alter column available_at set not null;
+
+create index if not exists post_outbox_pending_update_idx on post_outbox (post_id) where published_at is null and event_type = 'POST_UPDATED';
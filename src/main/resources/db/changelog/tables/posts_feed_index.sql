@@ -0,0 +1 @@
+create index if not exists posts_user_id_created_at_id_idx on posts (user_id, created_at, id);
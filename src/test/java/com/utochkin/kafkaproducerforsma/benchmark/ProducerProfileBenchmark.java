@@ -0,0 +1,117 @@
+package com.utochkin.kafkaproducerforsma.benchmark;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.props.KafkaProducerProfileProperties;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the same notification load with every producer profile from application.yaml to an embedded broker
+ * and prints records per second, p50/p99 send latency and serialized bytes per record. Every profile is also run
+ * with leader-only acks ({@code acks=1}, no idempotence) to show what the durable settings cost.
+ * Run with {@code ./gradlew producerBenchmark -Precords=100000}.
+ */
+public class ProducerProfileBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Map<String, Map<String, String>> profiles = loadProfiles();
+
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, 3);
+        broker.afterPropertiesSet();
+        try {
+            System.out.printf("%-24s %14s %10s %10s %14s%n", "profile", "records/s", "p50 ms", "p99 ms", "bytes/record");
+            for (Map.Entry<String, Map<String, String>> profile : profiles.entrySet()) {
+                String topic = "benchmark-" + profile.getKey();
+                broker.addTopics(topic);
+                run(broker.getBrokersAsString(), topic, profile.getKey(), profile.getValue(), records);
+
+                Map<String, String> leaderAcks = new HashMap<>(profile.getValue());
+                leaderAcks.put(ProducerConfig.ACKS_CONFIG, "1");
+                leaderAcks.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, "false");
+                run(broker.getBrokersAsString(), topic, profile.getKey() + "/acks=1", leaderAcks, records);
+            }
+        } finally {
+            broker.destroy();
+        }
+    }
+
+    private static Map<String, Map<String, String>> loadProfiles() throws IOException {
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                .load("application", new ClassPathResource("application.yaml"));
+        return new Binder(ConfigurationPropertySources.from(sources))
+                .bind("kafka.producer-profile", KafkaProducerProfileProperties.class)
+                .map(KafkaProducerProfileProperties::getProfiles)
+                .orElseThrow(() -> new IllegalStateException("No producer profiles in application.yaml"));
+    }
+
+    private static void run(String bootstrapServers, String topic, String name, Map<String, String> profile, int records)
+            throws InterruptedException {
+        Map<String, Object> config = new HashMap<>(profile);
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+
+        long[] latencies = new long[records];
+        AtomicLong bytes = new AtomicLong();
+        CountDownLatch acknowledged = new CountDownLatch(records);
+        long start;
+        try (KafkaProducer<Long, Object> producer = new KafkaProducer<>(config, new LongSerializer(), new JsonSerializer<>())) {
+            warmUp(producer, topic);
+            start = System.nanoTime();
+            for (int i = 0; i < records; i++) {
+                int index = i;
+                long sentAt = System.nanoTime();
+                producer.send(new ProducerRecord<>(topic, (long) (i % 1000), post(i)), (metadata, exception) -> {
+                    latencies[index] = System.nanoTime() - sentAt;
+                    if (metadata != null) {
+                        bytes.addAndGet(metadata.serializedKeySize() + metadata.serializedValueSize());
+                    }
+                    acknowledged.countDown();
+                });
+            }
+            producer.flush();
+            acknowledged.await(5, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.out.printf("%-24s %14.0f %10.2f %10.2f %14.1f%n", name,
+                records / (elapsed / 1e9),
+                latencies[(int) (records * 0.50)] / 1e6,
+                latencies[Math.min(records - 1, (int) (records * 0.99))] / 1e6,
+                bytes.get() / (double) records);
+    }
+
+    private static void warmUp(KafkaProducer<Long, Object> producer, String topic) {
+        for (int i = 0; i < 1000; i++) {
+            producer.send(new ProducerRecord<>(topic, (long) i, post(i)));
+        }
+        producer.flush();
+    }
+
+    private static PostDto post(int i) {
+        return PostDto.builder()
+                .id((long) i)
+                .description("Description " + i)
+                .message("Message of the post number " + i)
+                .imageName("325c0226-8acb-41ad-a214-40ff773b35bc: <2024-01-11T16:35:05.852513900> image_" + i + ".jpeg")
+                .createdAt(LocalDateTime.now())
+                .authorName("Sergey")
+                .build();
+    }
+}
@@ -0,0 +1,246 @@
+package com.utochkin.kafkaproducerforsma.benchmark;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Bulk-loads a synthetic social graph with COPY: users, follower and friend edges, posts, two-member chats and
+ * messages. Followed users are drawn from a Zipf distribution (the lowest generated ids are the most followed),
+ * while followings, friends, posts per user and messages per chat have Pareto distributed counts with the given means.
+ * Expects the schema from the Liquibase changelog and appends after the existing rows.
+ * Run with {@code ./gradlew generateSocialGraph -Pusers=1000000} against the database from
+ * POSTGRES_DB_NAME / POSTGRES_USERNAME / POSTGRES_PASSWORD (or POSTGRES_URL), or call {@link #generate(Connection)}
+ * from a test.
+ */
+public class SocialGraphGenerator {
+
+    private static final String PASSWORD_HASH = "$2a$12$uhKy.MGqmfYcgbkTd3ZR.eyXKVrU3gm0epHhSy6cfXzydbX4n3Ws2"; // 111
+    private static final double ZIPF_EXPONENT = 1.0;
+    private static final double PARETO_ALPHA = 1.5;
+    private static final int DAYS = 30;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final int users;
+    private final int avgFollowed;
+    private final int avgFriends;
+    private final int avgPosts;
+    private final int chats;
+    private final int avgMessagesPerChat;
+    private final Random random;
+    private final LocalDateTime now = LocalDateTime.now();
+
+    public SocialGraphGenerator(int users, int avgFollowed, int avgFriends, int avgPosts, int chats, int avgMessagesPerChat, long seed) {
+        this.users = users;
+        this.avgFollowed = avgFollowed;
+        this.avgFriends = avgFriends;
+        this.avgPosts = avgPosts;
+        this.chats = chats;
+        this.avgMessagesPerChat = avgMessagesPerChat;
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String url = Optional.ofNullable(System.getenv("POSTGRES_URL"))
+                .orElse("jdbc:postgresql://localhost:5432/" + System.getenv("POSTGRES_DB_NAME"));
+        try (Connection connection = DriverManager.getConnection(url, System.getenv("POSTGRES_USERNAME"), System.getenv("POSTGRES_PASSWORD"))) {
+            long start = System.nanoTime();
+            Map<String, Long> rows = new SocialGraphGenerator(users, 50, 10, 5, Math.max(1, users / 10), 20, 42)
+                    .generate(connection);
+            rows.forEach((table, count) -> System.out.printf("%-12s %,14d rows%n", table, count));
+            System.out.printf("Generated in %d s%n", (System.nanoTime() - start) / 1_000_000_000L);
+        }
+    }
+
+    public Map<String, Long> generate(Connection connection) throws SQLException {
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        Map<String, Long> rows = new LinkedHashMap<>();
+        long firstUserId = nextId(connection, "users");
+
+        try (CopyWriter writer = new CopyWriter(copyManager, "COPY users (id, name, password, email, role) FROM STDIN")) {
+            for (long id = firstUserId; id < firstUserId + users; id++) {
+                writer.row(id, "gen_user_" + id, PASSWORD_HASH, "gen_user_" + id + "@example.com", "ROLE_USER");
+            }
+            rows.put("users", writer.rows);
+        }
+        resetSequence(connection, "users");
+
+        ZipfSampler popularity = new ZipfSampler(users, ZIPF_EXPONENT);
+        try (CopyWriter writer = new CopyWriter(copyManager, "COPY followers (user_id, follower_id) FROM STDIN")) {
+            Set<Integer> followed = new HashSet<>();
+            for (int follower = 0; follower < users; follower++) {
+                int degree = pareto(avgFollowed, users - 1);
+                followed.clear();
+                for (int attempt = 0; followed.size() < degree && attempt < degree * 3; attempt++) {
+                    int author = popularity.sample(random);
+                    if (author != follower && followed.add(author)) {
+                        writer.row(firstUserId + author, firstUserId + follower);
+                    }
+                }
+            }
+            rows.put("followers", writer.rows);
+        }
+
+        try (CopyWriter writer = new CopyWriter(copyManager, "COPY friends (user_id, friend_id) FROM STDIN")) {
+            Set<Integer> friends = new HashSet<>();
+            for (int user = 0; user < users - 1; user++) {
+                // every pair is generated once from its lower side and written in both directions
+                int candidates = users - user - 1;
+                int degree = pareto(Math.max(1, avgFriends / 2), candidates);
+                friends.clear();
+                for (int attempt = 0; friends.size() < degree && attempt < degree * 3; attempt++) {
+                    int friend = user + 1 + random.nextInt(candidates);
+                    if (friends.add(friend)) {
+                        writer.row(firstUserId + user, firstUserId + friend);
+                        writer.row(firstUserId + friend, firstUserId + user);
+                    }
+                }
+            }
+            rows.put("friends", writer.rows);
+        }
+
+        long firstPostId = nextId(connection, "posts");
+        try (CopyWriter writer = new CopyWriter(copyManager, "COPY posts (id, description, message, created_at, user_id) FROM STDIN")) {
+            long postId = firstPostId;
+            for (int author = 0; author < users; author++) {
+                for (int i = pareto(avgPosts, 10_000); i > 0; i--) {
+                    writer.row(postId, "Description " + postId, "Message " + postId, Timestamp.valueOf(randomTime()), firstUserId + author);
+                    postId++;
+                }
+            }
+            rows.put("posts", writer.rows);
+        }
+        resetSequence(connection, "posts");
+
+        long firstChatId = nextId(connection, "chats");
+        int[] firstMembers = new int[chats];
+        int[] secondMembers = new int[chats];
+        int[] messageCounts = new int[chats];
+        LocalDateTime[] createdAt = new LocalDateTime[chats];
+        try (CopyWriter chatWriter = new CopyWriter(copyManager, "COPY chats (id, created_at, last_message) FROM STDIN")) {
+            for (int chat = 0; chat < chats; chat++) {
+                firstMembers[chat] = random.nextInt(users);
+                secondMembers[chat] = (firstMembers[chat] + 1 + random.nextInt(users - 1)) % users;
+                messageCounts[chat] = pareto(avgMessagesPerChat, 100_000);
+                createdAt[chat] = randomTime();
+                chatWriter.row(firstChatId + chat, Timestamp.valueOf(createdAt[chat]), "Message " + messageCounts[chat]);
+            }
+            rows.put("chats", chatWriter.rows);
+        }
+        resetSequence(connection, "chats");
+
+        try (CopyWriter writer = new CopyWriter(copyManager, "COPY users_chats (chats_id, user_id) FROM STDIN")) {
+            for (int chat = 0; chat < chats; chat++) {
+                writer.row(firstChatId + chat, firstUserId + firstMembers[chat]);
+                writer.row(firstChatId + chat, firstUserId + secondMembers[chat]);
+            }
+            rows.put("users_chats", writer.rows);
+        }
+
+        long firstMessageId = nextId(connection, "messages");
+        try (CopyWriter writer = new CopyWriter(copyManager, "COPY messages (id, sent_at, text, sender_id, chat_id) FROM STDIN")) {
+            long messageId = firstMessageId;
+            for (int chat = 0; chat < chats; chat++) {
+                for (int i = 1; i <= messageCounts[chat]; i++) {
+                    int sender = random.nextBoolean() ? firstMembers[chat] : secondMembers[chat];
+                    writer.row(messageId++, Timestamp.valueOf(createdAt[chat].plusSeconds(i)), "Message " + i,
+                            firstUserId + sender, firstChatId + chat);
+                }
+            }
+            rows.put("messages", writer.rows);
+        }
+        resetSequence(connection, "messages");
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE users, followers, friends, posts, chats, users_chats, messages");
+        }
+        return rows;
+    }
+
+    private int pareto(double mean, int max) {
+        double scale = mean * (PARETO_ALPHA - 1) / PARETO_ALPHA;
+        double value = scale / Math.pow(1 - random.nextDouble(), 1 / PARETO_ALPHA);
+        return (int) Math.min(max, Math.round(value));
+    }
+
+    private LocalDateTime randomTime() {
+        return now.minusSeconds(random.nextInt(DAYS * 24 * 3600));
+    }
+
+    private static long nextId(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static void resetSequence(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), (SELECT MAX(id) FROM " + table + "))");
+        }
+    }
+
+    private static final class ZipfSampler {
+        private final double[] cumulative;
+
+        ZipfSampler(int size, double exponent) {
+            cumulative = new double[size];
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += 1 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+        }
+
+        int sample(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[cumulative.length - 1]);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+
+    private static final class CopyWriter implements AutoCloseable {
+        private final CopyIn copyIn;
+        private final StringBuilder buffer = new StringBuilder(BUFFER_SIZE + 1024);
+        private long rows;
+
+        CopyWriter(CopyManager copyManager, String sql) throws SQLException {
+            this.copyIn = copyManager.copyIn(sql);
+        }
+
+        void row(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    buffer.append('\t');
+                }
+                buffer.append(values[i]);
+            }
+            buffer.append('\n');
+            rows++;
+            if (buffer.length() >= BUFFER_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (!copyIn.isActive()) {
+                return;
+            }
+            flush();
+            copyIn.endCopy();
+        }
+    }
+}
@@ -6,6 +6,8 @@ import com.utochkin.kafkaproducerforsma.exceptions.AccessDeniedException;
 import com.utochkin.kafkaproducerforsma.exceptions.BadInputDataException;
 import com.utochkin.kafkaproducerforsma.exceptions.PostNotFoundException;
 import com.utochkin.kafkaproducerforsma.exceptions.UserNotFoundException;
+import com.utochkin.kafkaproducerforsma.ranking.EngagementCounters;
+import com.utochkin.kafkaproducerforsma.services.interfaces.ImageLinkService;
 import com.utochkin.kafkaproducerforsma.services.interfaces.PostService;
 import io.minio.MinioClient;
 import org.junit.jupiter.api.BeforeEach;
@@ -50,6 +52,10 @@ class PostControllerTest {
     private PostService postService;
     @MockBean
     private MinioClient minioClient;
+    @MockBean
+    private EngagementCounters engagementCounters;
+    @MockBean
+    private ImageLinkService imageLinkService;
     @Autowired
     private WebApplicationContext context;
 
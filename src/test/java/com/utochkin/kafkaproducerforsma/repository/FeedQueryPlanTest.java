@@ -0,0 +1,92 @@
+package com.utochkin.kafkaproducerforsma.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Seeds a data set where scanning whole tables is clearly more expensive than using the changelog indexes and checks
+ * that the planner picks the indexes for the hot queries. The SQL is taken from the {@link Query} annotations,
+ * so a changed query is checked as it is.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("it")
+class FeedQueryPlanTest {
+    private static final int USERS = 20000;
+    private static final int FOLLOWED_PER_USER = 20;
+    private static final int POSTS_PER_USER = 10;
+    private static final int CHATS = 2000;
+    private static final int MESSAGES = 100000;
+
+    @Autowired
+    private EntityManager entityManager;
+    private long firstUserId;
+    private long firstChatId;
+
+    @BeforeEach
+    void setUp() {
+        execute("INSERT INTO users (name, password, email, role) SELECT 'plan_user_' || g, 'password', 'plan_user_' || g || '@test.com', 'ROLE_USER' FROM generate_series(0, " + (USERS - 1) + ") g");
+        firstUserId = ((Number) entityManager.createNativeQuery("SELECT MIN(id) FROM users WHERE name LIKE 'plan_user_%'").getSingleResult()).longValue();
+        execute("INSERT INTO followers (user_id, follower_id) SELECT " + firstUserId + " + (a + s * 37) % " + USERS + ", " + firstUserId + " + a"
+                + " FROM generate_series(0, " + (USERS - 1) + ") a, generate_series(1, " + FOLLOWED_PER_USER + ") s");
+        execute("INSERT INTO posts (description, message, created_at, user_id) SELECT 'Description', 'Message', now() - g * interval '1 minute', " + firstUserId + " + g % " + USERS
+                + " FROM generate_series(1, " + USERS * POSTS_PER_USER + ") g");
+
+        execute("INSERT INTO chats (created_at, last_message) SELECT now(), 'Text' FROM generate_series(1, " + CHATS + ")");
+        firstChatId = ((Number) entityManager.createNativeQuery("SELECT MIN(id) FROM chats").getSingleResult()).longValue();
+        execute("INSERT INTO messages (sent_at, text, sender_id, chat_id) SELECT now(), 'Text', " + firstUserId + " + g % " + USERS + ", " + firstChatId + " + g % " + CHATS
+                + " FROM generate_series(1, " + MESSAGES + ") g");
+
+        execute("ANALYZE users, followers, posts, chats, messages");
+    }
+
+    @Test
+    void getLastPostsFollowersUsesIndexes() throws NoSuchMethodException {
+        String sql = query(PostRepository.class, "getLastPostsFollowers", Long.class, Pageable.class)
+                .replace("?1", Long.toString(firstUserId + 42)) + " ORDER BY p.created_at DESC LIMIT 10";
+
+        assertNoSeqScan(sql);
+    }
+
+    @Test
+    void getAllMessagesInChatUsesIndexes() throws NoSuchMethodException {
+        String sql = query(MessageRepository.class, "getAllMessagesInChat", Long.class)
+                .replace("?1", Long.toString(firstChatId + 7));
+
+        assertNoSeqScan(sql);
+    }
+
+    @Test
+    void getLastMessageFromChatUsesIndexes() throws NoSuchMethodException {
+        String sql = query(MessageRepository.class, "getLastMessageFromChat", Long.class)
+                .replace("?1", Long.toString(firstChatId + 7));
+
+        assertNoSeqScan(sql);
+    }
+
+    private void execute(String sql) {
+        entityManager.createNativeQuery(sql).executeUpdate();
+    }
+
+    private static String query(Class<?> repository, String method, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return repository.getMethod(method, parameterTypes).getAnnotation(Query.class).value();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assertNoSeqScan(String sql) {
+        List<String> plan = entityManager.createNativeQuery("EXPLAIN " + sql).getResultList();
+        String text = plan.stream().collect(Collectors.joining(System.lineSeparator()));
+        Assertions.assertFalse(text.contains("Seq Scan"), () -> "Sequential scan in plan of " + sql + System.lineSeparator() + text);
+    }
+}
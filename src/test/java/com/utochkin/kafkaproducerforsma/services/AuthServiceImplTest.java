@@ -9,6 +9,7 @@ import com.utochkin.kafkaproducerforsma.models.User;
 import com.utochkin.kafkaproducerforsma.security.JwtTokenProvider;
 import com.utochkin.kafkaproducerforsma.services.impl.AuthServiceImpl;
 import com.utochkin.kafkaproducerforsma.services.impl.UserServiceImpl;
+import com.utochkin.kafkaproducerforsma.services.interfaces.FeedWarmupService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,6 +18,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -35,6 +37,8 @@ class AuthServiceImplTest {
     private UserServiceImpl userService;
     @Mock
     private JwtTokenProvider jwtTokenProvider;
+    @Mock
+    private ObjectProvider<FeedWarmupService> feedWarmupService;
 
     private User user1;
     private JwtRequest jwtRequest;
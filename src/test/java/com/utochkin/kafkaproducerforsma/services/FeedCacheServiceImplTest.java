@@ -0,0 +1,131 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.config.ExecutorConfig;
+import com.utochkin.kafkaproducerforsma.events.PostChangedEvent;
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
+import com.utochkin.kafkaproducerforsma.props.FeedCacheProperties;
+import com.utochkin.kafkaproducerforsma.repository.UserRepository;
+import com.utochkin.kafkaproducerforsma.services.impl.FeedCacheServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class FeedCacheServiceImplTest {
+    @Mock
+    private StringRedisTemplate redisTemplate;
+    @Mock
+    private RedisTemplate<String, Object> feedPageRedisTemplate;
+    @Mock
+    private ValueOperations<String, String> versions;
+    @Mock
+    private ValueOperations<String, Object> pages;
+    @Mock
+    private UserRepository userRepository;
+    private ThreadPoolTaskExecutor executor;
+    private FeedCacheServiceImpl feedCacheService;
+
+    @BeforeEach
+    void setUp() {
+        FeedCacheProperties feedCacheProperties = new FeedCacheProperties();
+        feedCacheProperties.setTtl(Duration.ofSeconds(30));
+        feedCacheProperties.setInvalidationChunkSize(2);
+        when(redisTemplate.opsForValue()).thenReturn(versions);
+        when(feedPageRedisTemplate.opsForValue()).thenReturn(pages);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        executor = ExecutorConfig.boundedExecutor("feedCacheExecutor", 1, 100, meterRegistry);
+        executor.initialize();
+        feedCacheService = new FeedCacheServiceImpl(redisTemplate, feedPageRedisTemplate, userRepository,
+                feedCacheProperties, executor, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void cachedPageIsReturnedWithoutLoading() {
+        when(versions.get("feed:version:1")).thenReturn("3");
+        when(pages.get("feed:page:1:3:first")).thenReturn(List.of("cached"));
+
+        Assertions.assertEquals(List.of("cached"), feedCacheService.get(1L, "first", () -> Assertions.fail("must not be loaded")));
+    }
+
+    @Test
+    void missingPageIsLoadedAndCachedUnderCurrentVersion() {
+        when(versions.get("feed:version:1")).thenReturn(null);
+
+        Assertions.assertEquals(List.of("loaded"), feedCacheService.get(1L, "first", () -> List.of("loaded")));
+        verify(pages, times(1)).set("feed:page:1:0:first", List.of("loaded"), Duration.ofSeconds(30));
+    }
+
+    @Test
+    void unavailableRedisLoadsPageDirectly() {
+        when(versions.get("feed:version:1")).thenThrow(new RedisConnectionFailureException("down"));
+
+        Assertions.assertEquals(List.of("loaded"), feedCacheService.get(1L, "first", () -> List.of("loaded")));
+        verify(pages, never()).set(any(), any(), any(Duration.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void changedPostInvalidatesOnlyFollowersOfAuthor() {
+        when(userRepository.getFollowerIdsAfter(7L, 0L, 2)).thenReturn(List.of(1L, 2L));
+        when(userRepository.getFollowerIdsAfter(7L, 2L, 2)).thenReturn(List.of(3L));
+
+        feedCacheService.onPostChanged(new PostChangedEvent(5L, 7L, LocalDateTime.now(), OutboxEventType.POST_CREATED));
+
+        verify(redisTemplate, timeout(1000).times(2)).executePipelined(any(SessionCallback.class));
+        verify(userRepository, timeout(1000).times(2)).getFollowerIdsAfter(eq(7L), anyLong(), eq(2));
+    }
+
+    @Test
+    void invalidationIsDroppedWhenExecutorIsSaturated() {
+        FeedCacheServiceImpl saturated = new FeedCacheServiceImpl(redisTemplate, feedPageRedisTemplate, userRepository,
+                new FeedCacheProperties(), task -> {
+            throw new RejectedExecutionException("Executor feedCacheExecutor is saturated");
+        }, new SimpleMeterRegistry());
+
+        Assertions.assertDoesNotThrow(() -> saturated.onPostChanged(
+                new PostChangedEvent(5L, 7L, LocalDateTime.now(), OutboxEventType.POST_CREATED)));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void warmedPageIsStoredOnceAndServedAsHit() {
+        when(versions.get("feed:version:1")).thenReturn("2");
+        when(feedPageRedisTemplate.hasKey("feed:page:1:2:first")).thenReturn(false);
+
+        feedCacheService.warm(1L, "first", () -> List.of("warmed"));
+
+        ArgumentCaptor<Object> stored = ArgumentCaptor.forClass(Object.class);
+        verify(pages, times(1)).set(eq("feed:page:1:2:first"), stored.capture(), eq(Duration.ofSeconds(30)));
+        when(pages.get("feed:page:1:2:first")).thenReturn(stored.getValue());
+
+        Assertions.assertEquals(List.of("warmed"), feedCacheService.get(1L, "first", () -> Assertions.fail("must not be loaded")));
+    }
+}
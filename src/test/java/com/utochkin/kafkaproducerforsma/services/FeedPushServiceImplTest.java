@@ -0,0 +1,118 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.config.ExecutorConfig;
+import com.utochkin.kafkaproducerforsma.dto.FeedUpdateDto;
+import com.utochkin.kafkaproducerforsma.events.PostChangedEvent;
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
+import com.utochkin.kafkaproducerforsma.props.FeedPushProperties;
+import com.utochkin.kafkaproducerforsma.repository.UserRepository;
+import com.utochkin.kafkaproducerforsma.services.impl.FeedPushServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class FeedPushServiceImplTest {
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+    @Mock
+    private SimpUserRegistry simpUserRegistry;
+    @Mock
+    private UserRepository userRepository;
+    private FeedPushProperties feedPushProperties;
+    private ThreadPoolTaskExecutor executor;
+    private FeedPushServiceImpl feedPushService;
+    private final LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        feedPushProperties = new FeedPushProperties();
+        feedPushProperties.setChunkSize(2);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        executor = ExecutorConfig.boundedExecutor("feedPushExecutor", 1, 100, meterRegistry);
+        executor.initialize();
+        feedPushService = new FeedPushServiceImpl(messagingTemplate, simpUserRegistry, userRepository,
+                feedPushProperties, executor, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void updateIsSentOnlyToConnectedFollowers() {
+        Set<SimpUser> users = new LinkedHashSet<>(List.of(user("alice"), user("bob"), user("carol")));
+        when(simpUserRegistry.getUsers()).thenReturn(users);
+        when(userRepository.getFollowerNamesAmong(7L, List.of("alice", "bob"))).thenReturn(List.of("bob"));
+        when(userRepository.getFollowerNamesAmong(7L, List.of("carol"))).thenReturn(List.of("carol"));
+        FeedUpdateDto update = new FeedUpdateDto(OutboxEventType.POST_CREATED, 5L, 7L, createdAt);
+
+        Assertions.assertEquals(2, feedPushService.pushToConnectedFollowers(update));
+        verify(messagingTemplate, times(1)).convertAndSendToUser("bob", "/queue/feed", update);
+        verify(messagingTemplate, times(1)).convertAndSendToUser("carol", "/queue/feed", update);
+        verify(messagingTemplate, never()).convertAndSendToUser(eq("alice"), any(), any());
+    }
+
+    @Test
+    void createdPostIsPushedAfterCommit() {
+        when(simpUserRegistry.getUserCount()).thenReturn(1);
+        when(simpUserRegistry.getUsers()).thenReturn(Set.of(user("bob")));
+        when(userRepository.getFollowerNamesAmong(7L, List.of("bob"))).thenReturn(List.of("bob"));
+
+        feedPushService.onPostChanged(new PostChangedEvent(5L, 7L, createdAt, OutboxEventType.POST_CREATED));
+
+        verify(messagingTemplate, timeout(1000)).convertAndSendToUser("bob", "/queue/feed",
+                new FeedUpdateDto(OutboxEventType.POST_CREATED, 5L, 7L, createdAt));
+    }
+
+    @Test
+    void nothingIsQueriedWithoutConnectedUsersOrForOtherChanges() {
+        when(simpUserRegistry.getUserCount()).thenReturn(0);
+        feedPushService.onPostChanged(new PostChangedEvent(5L, 7L, createdAt, OutboxEventType.POST_CREATED));
+
+        when(simpUserRegistry.getUserCount()).thenReturn(1);
+        feedPushService.onPostChanged(new PostChangedEvent(5L, 7L, createdAt, OutboxEventType.POST_DELETED));
+
+        verifyNoInteractions(userRepository, messagingTemplate);
+    }
+
+    @Test
+    void pushIsDroppedWhenExecutorIsSaturated() {
+        FeedPushServiceImpl saturated = new FeedPushServiceImpl(messagingTemplate, simpUserRegistry, userRepository,
+                feedPushProperties, task -> {
+            throw new RejectedExecutionException("Executor feedPushExecutor is saturated");
+        }, new SimpleMeterRegistry());
+        when(simpUserRegistry.getUserCount()).thenReturn(1);
+
+        Assertions.assertDoesNotThrow(() -> saturated.onPostChanged(new PostChangedEvent(5L, 7L, createdAt, OutboxEventType.POST_CREATED)));
+        verifyNoInteractions(userRepository, messagingTemplate);
+    }
+
+    private SimpUser user(String name) {
+        SimpUser user = mock(SimpUser.class);
+        when(user.getName()).thenReturn(name);
+        return user;
+    }
+}
@@ -0,0 +1,231 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.config.ExecutorConfig;
+import com.utochkin.kafkaproducerforsma.events.FollowersChangedEvent;
+import com.utochkin.kafkaproducerforsma.events.PostChangedEvent;
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
+import com.utochkin.kafkaproducerforsma.props.FeedRankingProperties;
+import com.utochkin.kafkaproducerforsma.ranking.*;
+import com.utochkin.kafkaproducerforsma.repository.PostRepository;
+import com.utochkin.kafkaproducerforsma.repository.UserRepository;
+import com.utochkin.kafkaproducerforsma.services.impl.FeedRankingServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class FeedRankingServiceImplTest {
+    @Mock
+    private PostRepository postRepository;
+    @Mock
+    private UserRepository userRepository;
+    private EngagementCounters engagementCounters;
+    private FeedRankingProperties feedRankingProperties;
+    private List<RankingSignal> signals;
+    private ThreadPoolTaskExecutor executor;
+    private FeedRankingServiceImpl feedRankingService;
+    private final LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        feedRankingProperties = new FeedRankingProperties();
+        feedRankingProperties.setTopN(3);
+        feedRankingProperties.setRecencyHalfLife(Duration.ofHours(1));
+        feedRankingProperties.setAffinityWeight(Math.log(4));
+        feedRankingProperties.setEngagementWeight(1.0);
+        feedRankingProperties.setMaxViewedPosts(2);
+        engagementCounters = new EngagementCounters(feedRankingProperties);
+        signals = List.of(new RecencySignal(feedRankingProperties), new AffinitySignal(feedRankingProperties),
+                new EngagementSignal(engagementCounters, feedRankingProperties));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        executor = ExecutorConfig.boundedExecutor("feedRankingExecutor", 1, 100, meterRegistry);
+        executor.initialize();
+        feedRankingService = new FeedRankingServiceImpl(postRepository, userRepository, signals,
+                feedRankingProperties, executor, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void feedIsOrderedByRecency() {
+        when(postRepository.getFeedCandidates(eq(1L), anyInt())).thenReturn(List.of(
+                candidate(3L, 7L, now), candidate(2L, 7L, now.minusHours(1)), candidate(1L, 7L, now.minusHours(2))));
+
+        Assertions.assertEquals(List.of(3L, 2L, 1L), feedRankingService.getRankedPostIds(1L, 0, 3));
+        Assertions.assertEquals(List.of(1L), feedRankingService.getRankedPostIds(1L, 1, 2));
+    }
+
+    @Test
+    void friendPostOutranksNewerPostOfStranger() {
+        when(userRepository.getFriendIds(1L)).thenReturn(List.of(8L));
+        when(postRepository.getFeedCandidates(eq(1L), anyInt())).thenReturn(List.of(
+                candidate(2L, 7L, now), candidate(1L, 8L, now.minusHours(1))));
+
+        Assertions.assertEquals(List.of(1L, 2L), feedRankingService.getRankedPostIds(1L, 0, 2));
+    }
+
+    @Test
+    void viewsAreAppliedOnRead() {
+        when(postRepository.getFeedCandidates(eq(1L), anyInt())).thenReturn(List.of(
+                candidate(2L, 7L, now), candidate(1L, 7L, now.minusHours(1))));
+        Assertions.assertEquals(List.of(2L, 1L), feedRankingService.getRankedPostIds(1L, 0, 2));
+
+        for (int i = 0; i < 5; i++) {
+            engagementCounters.recordView(1L);
+        }
+
+        Assertions.assertEquals(List.of(1L, 2L), feedRankingService.getRankedPostIds(1L, 0, 2));
+        verify(postRepository, times(1)).getFeedCandidates(eq(1L), anyInt());
+    }
+
+    @Test
+    void viewCountsAreBounded() {
+        engagementCounters.recordView(1L);
+        engagementCounters.recordView(2L);
+        engagementCounters.views(1L);
+        engagementCounters.recordView(3L);
+
+        Assertions.assertEquals(2, engagementCounters.size());
+        Assertions.assertEquals(1L, engagementCounters.views(1L));
+        Assertions.assertEquals(0L, engagementCounters.views(2L));
+        Assertions.assertEquals(1L, engagementCounters.views(3L));
+    }
+
+    @Test
+    void feedKeepsOnlyTopN() {
+        when(postRepository.getFeedCandidates(eq(1L), anyInt())).thenReturn(List.of(
+                candidate(4L, 7L, now), candidate(3L, 7L, now.minusHours(1)),
+                candidate(2L, 7L, now.minusHours(2)), candidate(1L, 7L, now.minusHours(3))));
+
+        Assertions.assertEquals(List.of(4L, 3L, 2L), feedRankingService.getRankedPostIds(1L, 0, 10));
+    }
+
+    @Test
+    void createdPostIsAddedOnlyToLoadedFollowers() throws InterruptedException {
+        when(postRepository.getFeedCandidates(anyLong(), anyInt())).thenReturn(List.of(candidate(1L, 7L, now)));
+        feedRankingService.getRankedPostIds(1L, 0, 10);
+        feedRankingService.getRankedPostIds(2L, 0, 10);
+        when(userRepository.getFollowerIdsAmong(eq(7L), anyCollection())).thenReturn(List.of(1L));
+
+        feedRankingService.onPostChanged(new PostChangedEvent(5L, 7L, now.plusMinutes(1), OutboxEventType.POST_CREATED));
+
+        awaitRanked(1L, List.of(5L, 1L));
+        Assertions.assertEquals(List.of(1L), feedRankingService.getRankedPostIds(2L, 0, 10));
+    }
+
+    @Test
+    void deletedPostAndChangedFollowingsAreApplied() throws InterruptedException {
+        when(postRepository.getFeedCandidates(eq(1L), anyInt())).thenReturn(List.of(
+                candidate(2L, 7L, now), candidate(1L, 7L, now.minusHours(1))));
+        feedRankingService.getRankedPostIds(1L, 0, 10);
+
+        feedRankingService.onPostChanged(new PostChangedEvent(2L, 7L, now, OutboxEventType.POST_DELETED));
+        awaitRanked(1L, List.of(1L));
+
+        feedRankingService.onFollowersChanged(new FollowersChangedEvent(1L));
+        feedRankingService.getRankedPostIds(1L, 0, 10);
+        verify(postRepository, times(2)).getFeedCandidates(eq(1L), anyInt());
+    }
+
+    @Test
+    void rejectedInsertIsDroppedAndRejectedDeleteIsAppliedInline() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Executor saturated = task -> {
+            throw new RejectedExecutionException("Executor feedRankingExecutor is saturated");
+        };
+        FeedRankingServiceImpl service = new FeedRankingServiceImpl(postRepository, userRepository, signals,
+                feedRankingProperties, saturated, meterRegistry);
+        when(postRepository.getFeedCandidates(eq(1L), anyInt())).thenReturn(List.of(
+                candidate(2L, 7L, now), candidate(1L, 7L, now.minusHours(1))));
+        service.getRankedPostIds(1L, 0, 10);
+
+        service.onPostChanged(new PostChangedEvent(5L, 7L, now.plusMinutes(1), OutboxEventType.POST_CREATED));
+        service.onPostChanged(new PostChangedEvent(2L, 7L, now, OutboxEventType.POST_DELETED));
+
+        Assertions.assertEquals(List.of(1L), service.getRankedPostIds(1L, 0, 10));
+        Assertions.assertEquals(1.0, meterRegistry.counter("feed.ranking.inserts.dropped").count());
+        verify(userRepository, never()).getFollowerIdsAmong(anyLong(), anyCollection());
+    }
+
+    @Test
+    void postCreatedWhileFeedIsBuiltIsNotLost() throws InterruptedException {
+        CountDownLatch offered = new CountDownLatch(1);
+        when(userRepository.getFollowerIdsAmong(eq(7L), anyCollection())).thenAnswer(invocation -> {
+            offered.countDown();
+            return List.of(1L);
+        });
+        when(postRepository.getFeedCandidates(eq(1L), anyInt())).thenAnswer(invocation -> {
+            feedRankingService.onPostChanged(new PostChangedEvent(5L, 7L, now.plusMinutes(1), OutboxEventType.POST_CREATED));
+            Assertions.assertTrue(offered.await(1, TimeUnit.SECONDS));
+            return List.of(candidate(1L, 7L, now));
+        });
+
+        feedRankingService.getRankedPostIds(1L, 0, 10);
+
+        awaitRanked(1L, List.of(5L, 1L));
+    }
+
+    @Test
+    void feedIsNotPublishedWhenFollowingsChangeWhileItIsBuilt() {
+        when(postRepository.getFeedCandidates(eq(1L), anyInt())).thenAnswer(invocation -> {
+            feedRankingService.onFollowersChanged(new FollowersChangedEvent(1L));
+            return List.of(candidate(1L, 7L, now));
+        });
+
+        Assertions.assertEquals(List.of(1L), feedRankingService.getRankedPostIds(1L, 0, 10));
+        feedRankingService.getRankedPostIds(1L, 0, 10);
+
+        verify(postRepository, times(2)).getFeedCandidates(eq(1L), anyInt());
+    }
+
+    private void awaitRanked(Long userId, List<Long> expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (!expected.equals(feedRankingService.getRankedPostIds(userId, 0, 10)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(expected, feedRankingService.getRankedPostIds(userId, 0, 10));
+    }
+
+    private PostRepository.CandidateEntry candidate(Long id, Long authorId, LocalDateTime createdAt) {
+        return new PostRepository.CandidateEntry() {
+            @Override
+            public Long getAuthorId() {
+                return authorId;
+            }
+
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getScore() {
+                return createdAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+            }
+        };
+    }
+}
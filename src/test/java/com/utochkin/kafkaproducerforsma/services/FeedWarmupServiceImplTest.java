@@ -0,0 +1,88 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.config.ExecutorConfig;
+import com.utochkin.kafkaproducerforsma.props.FeedWarmupProperties;
+import com.utochkin.kafkaproducerforsma.services.impl.FeedWarmupServiceImpl;
+import com.utochkin.kafkaproducerforsma.services.interfaces.PostService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class FeedWarmupServiceImplTest {
+    @Mock
+    private PostService postService;
+    private FeedWarmupProperties feedWarmupProperties;
+    private ThreadPoolTaskExecutor executor;
+    private FeedWarmupServiceImpl feedWarmupService;
+
+    @BeforeEach
+    void setUp() {
+        feedWarmupProperties = new FeedWarmupProperties();
+        feedWarmupProperties.setMaxUsers(2);
+        feedWarmupProperties.setActiveWindow(Duration.ofMinutes(15));
+        feedWarmupProperties.setConcurrency(1);
+        feedWarmupProperties.setPageSize(2);
+        feedWarmupProperties.setCursorPageSize(10);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        executor = ExecutorConfig.boundedExecutor("feedWarmupExecutor", feedWarmupProperties.getConcurrency(), 100, meterRegistry);
+        executor.initialize();
+        feedWarmupService = new FeedWarmupServiceImpl(postService, feedWarmupProperties, executor, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void loginWarmsFirstFeedPages() {
+        feedWarmupService.recordActivity(1L);
+
+        verify(postService, timeout(1000)).warmFeed(1L, 2, 10);
+    }
+
+    @Test
+    void refreshWarmsOnlyMostRecentlyActiveUsers() {
+        feedWarmupService.recordActivity(1L);
+        verify(postService, timeout(1000)).warmFeed(1L, 2, 10);
+        feedWarmupService.recordActivity(2L);
+        verify(postService, timeout(1000)).warmFeed(2L, 2, 10);
+        feedWarmupService.recordActivity(3L);
+        verify(postService, timeout(1000)).warmFeed(3L, 2, 10);
+
+        feedWarmupService.refresh();
+
+        verify(postService, timeout(1000).times(2)).warmFeed(2L, 2, 10);
+        verify(postService, timeout(1000).times(2)).warmFeed(3L, 2, 10);
+        verify(postService, times(1)).warmFeed(1L, 2, 10);
+    }
+
+    @Test
+    void warmupIsSkippedWhenExecutorIsSaturated() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        FeedWarmupServiceImpl saturated = new FeedWarmupServiceImpl(postService, feedWarmupProperties, task -> {
+            throw new RejectedExecutionException("Executor feedWarmupExecutor is saturated");
+        }, meterRegistry);
+
+        saturated.recordActivity(1L);
+        saturated.recordActivity(1L);
+
+        Assertions.assertEquals(2.0, meterRegistry.counter("feed.warmup.users", "result", "skipped").count());
+        verifyNoInteractions(postService);
+    }
+}
@@ -0,0 +1,115 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.config.ExecutorConfig;
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.props.FanOutProperties;
+import com.utochkin.kafkaproducerforsma.repository.UserRepository;
+import com.utochkin.kafkaproducerforsma.sender.FollowerFanOutService;
+import com.utochkin.kafkaproducerforsma.sender.KafkaSenderService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class FollowerFanOutServiceTest {
+    private static final String TOPIC = "topic-notification-follower";
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private KafkaSenderService kafkaSenderService;
+    private FanOutProperties fanOutProperties;
+    private ThreadPoolTaskExecutor executor;
+    private FollowerFanOutService followerFanOutService;
+    private final PostDto post = PostDto.builder().id(100L).build();
+
+    @BeforeEach
+    void setUp() {
+        fanOutProperties = new FanOutProperties();
+        fanOutProperties.setChunkSize(2);
+        fanOutProperties.setThreads(1);
+        fanOutProperties.setQueueCapacity(1);
+        when(kafkaSenderService.send(eq(TOPIC), anyLong(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        executor = ExecutorConfig.boundedExecutor("fanOutExecutor", fanOutProperties.getThreads(), fanOutProperties.getQueueCapacity(),
+                new SimpleMeterRegistry());
+        executor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void followersAreReadInKeysetChunks() {
+        when(userRepository.getFollowerIdsAfter(7L, 0L, 2)).thenReturn(List.of(1L, 2L));
+        when(userRepository.getFollowerIdsAfter(7L, 2L, 2)).thenReturn(List.of(3L, 4L));
+        when(userRepository.getFollowerIdsAfter(7L, 4L, 2)).thenReturn(List.of(5L));
+        followerFanOutService = new FollowerFanOutService(userRepository, kafkaSenderService, fanOutProperties, executor);
+
+        followerFanOutService.fanOut(post, 7L);
+
+        verify(userRepository, timeout(1000)).getFollowerIdsAfter(7L, 4L, 2);
+        for (long followerId = 1; followerId <= 5; followerId++) {
+            verify(kafkaSenderService, timeout(1000)).send(TOPIC, followerId, post);
+        }
+        verify(userRepository, never()).getFollowerIdsAfter(7L, 5L, 2);
+    }
+
+    @Test
+    void fullLastChunkEndsWithEmptyChunk() {
+        when(userRepository.getFollowerIdsAfter(7L, 0L, 2)).thenReturn(List.of(1L, 2L));
+        when(userRepository.getFollowerIdsAfter(7L, 2L, 2)).thenReturn(List.of());
+        followerFanOutService = new FollowerFanOutService(userRepository, kafkaSenderService, fanOutProperties, executor);
+
+        followerFanOutService.fanOut(post, 7L);
+
+        verify(userRepository, timeout(1000)).getFollowerIdsAfter(7L, 2L, 2);
+        verify(kafkaSenderService, timeout(1000).times(2)).send(eq(TOPIC), anyLong(), eq(post));
+    }
+
+    @Test
+    void saturatedPoolDefersFanOutInsteadOfRunningItOnCaller() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Thread> deferredThread = new AtomicReference<>();
+        when(userRepository.getFollowerIdsAfter(eq(1L), anyLong(), anyInt())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(1, TimeUnit.SECONDS);
+            return List.of();
+        });
+        when(userRepository.getFollowerIdsAfter(eq(3L), anyLong(), anyInt())).thenAnswer(invocation -> {
+            deferredThread.set(Thread.currentThread());
+            return List.of();
+        });
+        followerFanOutService = new FollowerFanOutService(userRepository, kafkaSenderService, fanOutProperties, executor);
+
+        followerFanOutService.fanOut(post, 1L);
+        Assertions.assertTrue(started.await(1, TimeUnit.SECONDS));
+        followerFanOutService.fanOut(post, 2L);
+        followerFanOutService.fanOut(post, 3L);
+
+        verify(userRepository, never()).getFollowerIdsAfter(eq(3L), anyLong(), anyInt());
+        release.countDown();
+        verify(userRepository, timeout(1000)).getFollowerIdsAfter(eq(3L), anyLong(), anyInt());
+        Assertions.assertNotSame(Thread.currentThread(), deferredThread.get());
+    }
+}
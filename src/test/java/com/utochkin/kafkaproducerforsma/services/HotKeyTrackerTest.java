@@ -0,0 +1,72 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.props.HotKeyProperties;
+import com.utochkin.kafkaproducerforsma.sender.HotKeyPartitioner;
+import com.utochkin.kafkaproducerforsma.sender.HotKeyTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+
+class HotKeyTrackerTest {
+
+    private static final String TOPIC = "topic-notification-user";
+
+    private HotKeyTracker hotKeyTracker;
+    private HotKeyPartitioner hotKeyPartitioner;
+    private Cluster cluster;
+    private final LongSerializer longSerializer = new LongSerializer();
+
+    @BeforeEach
+    void setUp() {
+        HotKeyProperties hotKeyProperties = new HotKeyProperties();
+        hotKeyProperties.setThreshold(10);
+        hotKeyProperties.setWindow(Duration.ofHours(1));
+        hotKeyTracker = new HotKeyTracker(hotKeyProperties, new SimpleMeterRegistry());
+        hotKeyPartitioner = new HotKeyPartitioner();
+        hotKeyPartitioner.configure(Map.of(HotKeyPartitioner.TRACKER_CONFIG, hotKeyTracker));
+
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> partitions = List.of(
+                new PartitionInfo(TOPIC, 0, node, new Node[]{node}, new Node[]{node}),
+                new PartitionInfo(TOPIC, 1, node, new Node[]{node}, new Node[]{node}),
+                new PartitionInfo(TOPIC, 2, node, new Node[]{node}, new Node[]{node}));
+        cluster = new Cluster("cluster", List.of(node), partitions, Set.of(), Set.of());
+    }
+
+    @Test
+    void keyBecomesHotAfterThreshold() {
+        for (int i = 0; i < 9; i++) {
+            Assertions.assertFalse(hotKeyTracker.recordAndCheck(1L));
+        }
+        Assertions.assertTrue(hotKeyTracker.recordAndCheck(1L));
+        Assertions.assertEquals(Set.of(1L), hotKeyTracker.getHotKeys().keySet());
+        Assertions.assertFalse(hotKeyTracker.recordAndCheck(2L));
+    }
+
+    @Test
+    void coldKeyKeepsItsPartition() {
+        byte[] keyBytes = longSerializer.serialize(TOPIC, 5L);
+        int first = hotKeyPartitioner.partition(TOPIC, 5L, keyBytes, null, null, cluster);
+        for (int i = 0; i < 8; i++) {
+            Assertions.assertEquals(first, hotKeyPartitioner.partition(TOPIC, 5L, keyBytes, null, null, cluster));
+        }
+    }
+
+    @Test
+    void hotKeyIsSpreadAcrossPartitions() {
+        byte[] keyBytes = longSerializer.serialize(TOPIC, 7L);
+        Set<Integer> usedPartitions = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            usedPartitions.add(hotKeyPartitioner.partition(TOPIC, 7L, keyBytes, null, null, cluster));
+        }
+        Assertions.assertEquals(3, usedPartitions.size());
+    }
+}
@@ -0,0 +1,82 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.props.MinioProperties;
+import com.utochkin.kafkaproducerforsma.services.impl.ImageLinkServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ImageLinkServiceImplTest {
+    @Mock
+    private MinioClient minioClient;
+    private MinioProperties minioProperties;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        minioProperties = new MinioProperties();
+        minioProperties.setBucket("images");
+        when(minioClient.getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class)))
+                .thenAnswer(invocation -> "http://localhost:9000/images/" + invocation.<GetPresignedObjectUrlArgs>getArgument(0).object());
+    }
+
+    @Test
+    void linksOfFeedPageAreSignedOnceAndCached() throws Exception {
+        ImageLinkServiceImpl imageLinkService = new ImageLinkServiceImpl(minioClient, minioProperties, new SimpleMeterRegistry());
+        PostDto withThumbnail = PostDto.builder().id(1L).imageName("a.jpg").thumbnailName("a.jpg_thumbnail.jpg").build();
+        PostDto sameImage = PostDto.builder().id(2L).imageName("a.jpg").build();
+        PostDto withoutImage = PostDto.builder().id(3L).build();
+
+        imageLinkService.resolveLinks(List.of(withThumbnail, sameImage, withoutImage));
+        imageLinkService.resolveLinks(List.of(withThumbnail, sameImage, withoutImage));
+
+        ArgumentCaptor<GetPresignedObjectUrlArgs> args = ArgumentCaptor.forClass(GetPresignedObjectUrlArgs.class);
+        verify(minioClient, times(2)).getPresignedObjectUrl(args.capture());
+        Assertions.assertEquals((int) Duration.ofDays(7).toSeconds(), args.getValue().expiry());
+        Assertions.assertEquals("http://localhost:9000/images/a.jpg", withThumbnail.getImageLink());
+        Assertions.assertEquals("http://localhost:9000/images/a.jpg_thumbnail.jpg", withThumbnail.getThumbnailLink());
+        Assertions.assertEquals("http://localhost:9000/images/a.jpg", sameImage.getThumbnailLink());
+        Assertions.assertNull(withoutImage.getImageLink());
+    }
+
+    @Test
+    void linkCloseToExpiryIsSignedAgain() throws Exception {
+        minioProperties.setLinkExpiry(Duration.ofHours(1));
+        minioProperties.setLinkRefreshBefore(Duration.ofHours(1));
+        ImageLinkServiceImpl imageLinkService = new ImageLinkServiceImpl(minioClient, minioProperties, new SimpleMeterRegistry());
+
+        imageLinkService.getLinks(List.of("a.jpg"));
+        imageLinkService.getLinks(List.of("a.jpg"));
+
+        verify(minioClient, times(2)).getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class));
+    }
+
+    @Test
+    void leastRecentlyUsedLinkIsEvicted() throws Exception {
+        minioProperties.setLinkCacheSize(1);
+        ImageLinkServiceImpl imageLinkService = new ImageLinkServiceImpl(minioClient, minioProperties, new SimpleMeterRegistry());
+
+        imageLinkService.getLinks(List.of("a.jpg"));
+        imageLinkService.getLinks(List.of("b.jpg"));
+        imageLinkService.getLinks(List.of("a.jpg"));
+
+        verify(minioClient, times(3)).getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class));
+    }
+}
@@ -0,0 +1,147 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.events.ImageUploadedEvent;
+import com.utochkin.kafkaproducerforsma.events.PostChangedEvent;
+import com.utochkin.kafkaproducerforsma.models.Post;
+import com.utochkin.kafkaproducerforsma.models.User;
+import com.utochkin.kafkaproducerforsma.props.ImageVariantProperties;
+import com.utochkin.kafkaproducerforsma.props.MinioProperties;
+import com.utochkin.kafkaproducerforsma.repository.PostRepository;
+import com.utochkin.kafkaproducerforsma.repository.StoredImageRepository;
+import com.utochkin.kafkaproducerforsma.services.impl.ImageVariantServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.*;
+import okhttp3.Headers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ImageVariantServiceImplTest {
+    private static final String IMAGE_NAME = "1/uuid: <2024-01-11T16:35:05> picture_for_test.jpg";
+
+    @Mock
+    private MinioClient minioClient;
+    @Mock
+    private MinioProperties minioProperties;
+    @Mock
+    private PostRepository postRepository;
+    @Mock
+    private StoredImageRepository storedImageRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private CacheManager cacheManager;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    private ImageVariantProperties imageVariantProperties;
+    private ImageVariantServiceImpl imageVariantService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        imageVariantProperties = new ImageVariantProperties();
+        imageVariantProperties.setSizes(new LinkedHashMap<>(Map.of("thumbnail", 64)));
+        when(minioProperties.getBucket()).thenReturn("images");
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(invocation -> new GetObjectResponse(Headers.of(), "images", null,
+                IMAGE_NAME, new FileInputStream("src/test/resources/picture_for_test.jpg")));
+        when(minioClient.getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class))).thenReturn("http://localhost:9000/images/thumbnail.jpg");
+        imageVariantService = new ImageVariantServiceImpl(minioClient, minioProperties, postRepository, storedImageRepository, eventPublisher, cacheManager,
+                transactionManager, imageVariantProperties, Runnable::run, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void rejectedUploadKeepsOriginalAndIsCounted() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ImageVariantServiceImpl saturated = new ImageVariantServiceImpl(minioClient, minioProperties, postRepository, storedImageRepository,
+                eventPublisher, cacheManager, transactionManager, imageVariantProperties, task -> {
+            throw new RejectedExecutionException("Executor imageVariantExecutor is saturated");
+        }, meterRegistry);
+
+        Assertions.assertDoesNotThrow(() -> saturated.onImageUploaded(new ImageUploadedEvent(1L, "image.png")));
+        Assertions.assertEquals(1.0, meterRegistry.counter("image.variants", "result", "rejected").count());
+        verifyNoInteractions(minioClient, postRepository);
+    }
+
+    @Test
+    void downscaledJpegIsStoredAndRecordedOnPost() throws Exception {
+        Post post = Post.builder().id(1L).imageName(IMAGE_NAME).createdAt(LocalDateTime.now()).user(User.builder().id(7L).build()).build();
+        when(postRepository.findById(1L)).thenReturn(Optional.of(post));
+
+        imageVariantService.createVariants(1L, IMAGE_NAME);
+
+        ArgumentCaptor<PutObjectArgs> putObjectArgs = ArgumentCaptor.forClass(PutObjectArgs.class);
+        verify(minioClient, times(1)).putObject(putObjectArgs.capture());
+        Assertions.assertEquals(IMAGE_NAME + "_thumbnail.jpg", putObjectArgs.getValue().object());
+        Assertions.assertEquals("image/jpeg", putObjectArgs.getValue().contentType());
+        var thumbnail = ImageIO.read(new ByteArrayInputStream(putObjectArgs.getValue().stream().readAllBytes()));
+        Assertions.assertEquals(64, Math.max(thumbnail.getWidth(), thumbnail.getHeight()));
+
+        Assertions.assertEquals(IMAGE_NAME + "_thumbnail.jpg", post.getImageVariants().get("thumbnail").getImageName());
+        verify(eventPublisher, times(1)).publishEvent(any(PostChangedEvent.class));
+    }
+
+    @Test
+    void variantsOfReplacedImageAreDeleted() throws Exception {
+        Post post = Post.builder().id(1L).imageName("another image").user(User.builder().id(7L).build()).build();
+        when(postRepository.findById(1L)).thenReturn(Optional.of(post));
+
+        imageVariantService.createVariants(1L, IMAGE_NAME);
+
+        ArgumentCaptor<RemoveObjectArgs> removeObjectArgs = ArgumentCaptor.forClass(RemoveObjectArgs.class);
+        verify(minioClient, times(1)).removeObject(removeObjectArgs.capture());
+        Assertions.assertEquals(IMAGE_NAME + "_thumbnail.jpg", removeObjectArgs.getValue().object());
+        Assertions.assertTrue(post.getImageVariants().isEmpty());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void existingVariantsOfSharedImageAreReused() throws Exception {
+        String sharedName = "sha256/5d41402abc4b2a76b9719d911017c592.jpg";
+        Post post = Post.builder().id(2L).imageName(sharedName).createdAt(LocalDateTime.now()).user(User.builder().id(7L).build()).build();
+        when(postRepository.findById(2L)).thenReturn(Optional.of(post));
+        when(storedImageRepository.getRefCount(sharedName)).thenReturn(Optional.of(2));
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenReturn(mock(StatObjectResponse.class));
+
+        imageVariantService.createVariants(2L, sharedName);
+
+        verify(minioClient, never()).getObject(any(GetObjectArgs.class));
+        verify(minioClient, never()).putObject(any(PutObjectArgs.class));
+        Assertions.assertEquals(sharedName + "_thumbnail.jpg", post.getImageVariants().get("thumbnail").getImageName());
+    }
+
+    @Test
+    void imageAbovePixelLimitIsNotDecoded() throws Exception {
+        imageVariantProperties.setMaxPixels(100);
+        Post post = Post.builder().id(1L).imageName(IMAGE_NAME).createdAt(LocalDateTime.now()).user(User.builder().id(7L).build()).build();
+        when(postRepository.findById(1L)).thenReturn(Optional.of(post));
+
+        imageVariantService.createVariants(1L, IMAGE_NAME);
+
+        verify(minioClient, times(1)).getObject(any(GetObjectArgs.class));
+        verify(minioClient, never()).putObject(any(PutObjectArgs.class));
+        Assertions.assertTrue(post.getImageVariants().isEmpty());
+        verifyNoInteractions(eventPublisher);
+    }
+}
@@ -0,0 +1,59 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.security.JwtChannelInterceptor;
+import com.utochkin.kafkaproducerforsma.security.JwtTokenProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class JwtChannelInterceptorTest {
+    @InjectMocks
+    private JwtChannelInterceptor jwtChannelInterceptor;
+    @Mock
+    private JwtTokenProvider jwtTokenProvider;
+    @Mock
+    private MessageChannel channel;
+
+    @Test
+    void sendToUserQueuesIsRejected() {
+        Assertions.assertThrows(MessageDeliveryException.class,
+                () -> jwtChannelInterceptor.preSend(frame(StompCommand.SEND, "/user/Sergey/queue/feed"), channel));
+        Assertions.assertThrows(MessageDeliveryException.class,
+                () -> jwtChannelInterceptor.preSend(frame(StompCommand.SEND, "/queue/feed-user1a2b3c"), channel));
+    }
+
+    @Test
+    void subscribeToQueueDirectlyIsRejected() {
+        Assertions.assertThrows(MessageDeliveryException.class,
+                () -> jwtChannelInterceptor.preSend(frame(StompCommand.SUBSCRIBE, "/queue/feed-user1a2b3c"), channel));
+    }
+
+    @Test
+    void ownQueueAndChatDestinationsAreAllowed() {
+        Message<?> subscribe = frame(StompCommand.SUBSCRIBE, "/user/queue/feed");
+        Message<?> send = frame(StompCommand.SEND, "/app/add");
+
+        Assertions.assertSame(subscribe, jwtChannelInterceptor.preSend(subscribe, channel));
+        Assertions.assertSame(send, jwtChannelInterceptor.preSend(send, channel));
+    }
+
+    private static Message<?> frame(StompCommand command, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setDestination(destination);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,138 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.exceptions.NotificationOverflowException;
+import com.utochkin.kafkaproducerforsma.props.KafkaSenderProperties;
+import com.utochkin.kafkaproducerforsma.sender.KafkaSenderService;
+import com.utochkin.kafkaproducerforsma.sender.NotificationSpillHandler;
+import com.utochkin.kafkaproducerforsma.sender.OverflowPolicy;
+import com.utochkin.kafkaproducerforsma.sender.ReactiveNotificationPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class KafkaSenderServiceBackPressureTest {
+    @Mock
+    private KafkaTemplate<Long, Object> kafkaTemplate;
+    @Mock
+    private ObjectProvider<NotificationSpillHandler> spillHandlerProvider;
+    @Mock
+    private NotificationSpillHandler spillHandler;
+    @Mock
+    private ObjectProvider<ReactiveNotificationPublisher> reactivePublisherProvider;
+    private KafkaSenderProperties kafkaSenderProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private final PostDto postDto = PostDto.builder().id(1L).description("Description").message("Message").build();
+
+    @BeforeEach
+    void setUp() {
+        kafkaSenderProperties = new KafkaSenderProperties();
+        kafkaSenderProperties.setMaxInFlight(1);
+        kafkaSenderProperties.setBlockTimeout(Duration.ofMillis(10));
+        meterRegistry = new SimpleMeterRegistry();
+        when(spillHandlerProvider.getIfAvailable()).thenReturn(spillHandler);
+    }
+
+    @Test
+    void sendReleasesPermitWhenRecordIsAcknowledged() {
+        CompletableFuture<SendResult<Long, Object>> brokerFuture = new CompletableFuture<>();
+        when(kafkaTemplate.send("topic-notification-user", 1L, postDto)).thenReturn(brokerFuture);
+        KafkaSenderService kafkaSenderService = new KafkaSenderService(kafkaTemplate, kafkaSenderProperties, spillHandlerProvider, reactivePublisherProvider, meterRegistry);
+
+        kafkaSenderService.send(postDto, 1L);
+        Assertions.assertEquals(1, kafkaSenderService.getInFlight());
+
+        brokerFuture.complete(null);
+        Assertions.assertEquals(0, kafkaSenderService.getInFlight());
+        Assertions.assertEquals(1, meterRegistry.get("kafka.sender.latency").timer().count());
+    }
+
+    @Test
+    void blockPolicyFailsAfterTimeoutWhenNoPermitsLeft() {
+        kafkaSenderProperties.setOverflowPolicy(OverflowPolicy.BLOCK);
+        when(kafkaTemplate.send(any(), any(), any())).thenReturn(new CompletableFuture<>());
+        KafkaSenderService kafkaSenderService = new KafkaSenderService(kafkaTemplate, kafkaSenderProperties, spillHandlerProvider, reactivePublisherProvider, meterRegistry);
+
+        kafkaSenderService.send(postDto, 1L);
+        CompletableFuture<SendResult<Long, Object>> rejected = kafkaSenderService.send(postDto, 2L);
+
+        ExecutionException exception = Assertions.assertThrows(ExecutionException.class, rejected::get);
+        Assertions.assertInstanceOf(NotificationOverflowException.class, exception.getCause());
+        Assertions.assertEquals(1.0, meterRegistry.get("kafka.sender.buffer.exhausted").counter().count());
+        verify(kafkaTemplate, times(1)).send(any(), any(), any());
+    }
+
+    @Test
+    void spillPolicyHandsRecordToSpillHandler() {
+        kafkaSenderProperties.setOverflowPolicy(OverflowPolicy.SPILL);
+        when(kafkaTemplate.send(any(), any(), any())).thenReturn(new CompletableFuture<>());
+        KafkaSenderService kafkaSenderService = new KafkaSenderService(kafkaTemplate, kafkaSenderProperties, spillHandlerProvider, reactivePublisherProvider, meterRegistry);
+
+        kafkaSenderService.send("topic-notification-user", 1L, postDto);
+        CompletableFuture<SendResult<Long, Object>> spilled = kafkaSenderService.send("topic-notification-user", 2L, postDto);
+
+        Assertions.assertTrue(spilled.isDone());
+        Assertions.assertFalse(spilled.isCompletedExceptionally());
+        verify(spillHandler, times(1)).spill("topic-notification-user", 2L, postDto);
+    }
+
+    @Test
+    void outboxRecordIsNotSpilled() {
+        kafkaSenderProperties.setOverflowPolicy(OverflowPolicy.SPILL);
+        when(kafkaTemplate.send(any(), any(), any())).thenReturn(new CompletableFuture<>());
+        KafkaSenderService kafkaSenderService = new KafkaSenderService(kafkaTemplate, kafkaSenderProperties, spillHandlerProvider, reactivePublisherProvider, meterRegistry);
+
+        kafkaSenderService.send(postDto, 1L);
+        CompletableFuture<SendResult<Long, Object>> rejected = kafkaSenderService.send(postDto, 2L);
+
+        Assertions.assertTrue(rejected.isCompletedExceptionally());
+        verify(spillHandler, never()).spill(any(), any(), any());
+    }
+
+    @Test
+    void recordsAreQueuedBehindPendingJournal() {
+        kafkaSenderProperties.setOverflowPolicy(OverflowPolicy.SPILL);
+        when(spillHandler.hasPending()).thenReturn(true);
+        when(spillHandler.spillIfPending(any(), any(), any())).thenReturn(true);
+        KafkaSenderService kafkaSenderService = new KafkaSenderService(kafkaTemplate, kafkaSenderProperties, spillHandlerProvider, reactivePublisherProvider, meterRegistry);
+
+        CompletableFuture<SendResult<Long, Object>> spilled = kafkaSenderService.send("topic-notification-user", 1L, postDto);
+        CompletableFuture<SendResult<Long, Object>> deferred = kafkaSenderService.send(postDto, 2L);
+
+        Assertions.assertTrue(spilled.isDone());
+        Assertions.assertFalse(spilled.isCompletedExceptionally());
+        verify(spillHandler, times(1)).spillIfPending("topic-notification-user", 1L, postDto);
+        ExecutionException exception = Assertions.assertThrows(ExecutionException.class, deferred::get);
+        Assertions.assertInstanceOf(NotificationOverflowException.class, exception.getCause());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    void failedSendIsCounted() {
+        when(kafkaTemplate.send(any(), any(), any())).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+        KafkaSenderService kafkaSenderService = new KafkaSenderService(kafkaTemplate, kafkaSenderProperties, spillHandlerProvider, reactivePublisherProvider, meterRegistry);
+
+        kafkaSenderService.send(postDto, 1L);
+
+        Assertions.assertEquals(1.0, meterRegistry.get("kafka.sender.failures").counter().count());
+        Assertions.assertEquals(0, kafkaSenderService.getInFlight());
+    }
+}
@@ -0,0 +1,52 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.props.MinioProperties;
+import com.utochkin.kafkaproducerforsma.services.impl.PendingUploadsCleanup;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PendingUploadsCleanupTest {
+    @Mock
+    private MinioClient minioClient;
+
+    @Test
+    void onlyPendingUploadsOlderThanRetentionAreRemoved() throws Exception {
+        MinioProperties minioProperties = new MinioProperties();
+        minioProperties.setBucket("images");
+        Item stale = mock(Item.class);
+        when(stale.objectName()).thenReturn("pending/1/stale.jpeg");
+        when(stale.lastModified()).thenReturn(ZonedDateTime.now().minusDays(2));
+        Item fresh = mock(Item.class);
+        when(fresh.objectName()).thenReturn("pending/1/fresh.jpeg");
+        when(fresh.lastModified()).thenReturn(ZonedDateTime.now().minusMinutes(5));
+        when(minioClient.listObjects(any(ListObjectsArgs.class))).thenReturn(List.of(new Result<>(stale), new Result<>(fresh)));
+
+        new PendingUploadsCleanup(minioClient, minioProperties).cleanup();
+
+        ArgumentCaptor<ListObjectsArgs> listObjectsArgs = ArgumentCaptor.forClass(ListObjectsArgs.class);
+        verify(minioClient).listObjects(listObjectsArgs.capture());
+        Assertions.assertEquals("pending/", listObjectsArgs.getValue().prefix());
+        ArgumentCaptor<RemoveObjectArgs> removeObjectArgs = ArgumentCaptor.forClass(RemoveObjectArgs.class);
+        verify(minioClient, times(1)).removeObject(removeObjectArgs.capture());
+        Assertions.assertEquals("pending/1/stale.jpeg", removeObjectArgs.getValue().object());
+    }
+}
@@ -0,0 +1,59 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.serialization.PostDtoBinaryDeserializer;
+import com.utochkin.kafkaproducerforsma.serialization.PostDtoBinarySerializer;
+import com.utochkin.kafkaproducerforsma.serialization.PostDtoCodec;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+class PostDtoCodecTest {
+
+    private final PostDtoBinarySerializer serializer = new PostDtoBinarySerializer();
+    private final PostDtoBinaryDeserializer deserializer = new PostDtoBinaryDeserializer();
+
+    @Test
+    void roundTripWithAllFields() {
+        PostDto postDto = PostDto.builder()
+                .id(1111L)
+                .description("Описание")
+                .message("Message")
+                .imageName("UUID + Date + picture_for_test.jpg")
+                .imageLink("http://localhost:9000/images/UUID_Date_picture_for_test.jpg")
+                .createdAt(LocalDateTime.of(2024, 3, 11, 10, 23, 54, 123456789))
+                .authorName("Sergey")
+                .build();
+
+        byte[] bytes = serializer.serialize("topic-notification-user", postDto);
+
+        Assertions.assertEquals(PostDtoCodec.VERSION_1, bytes[0]);
+        Assertions.assertEquals(postDto, deserializer.deserialize("topic-notification-user", bytes));
+    }
+
+    @Test
+    void roundTripWithoutOptionalFields() {
+        PostDto postDto = PostDto.builder()
+                .description("Description")
+                .message("Message")
+                .build();
+
+        PostDto actual = deserializer.deserialize("topic-notification-user", serializer.serialize("topic-notification-user", postDto));
+
+        Assertions.assertEquals(postDto, actual);
+        Assertions.assertNull(actual.getId());
+        Assertions.assertNull(actual.getCreatedAt());
+    }
+
+    @Test
+    void nullValueIsTombstone() {
+        Assertions.assertNull(serializer.serialize("topic-notification-user", null));
+        Assertions.assertNull(deserializer.deserialize("topic-notification-user", null));
+    }
+
+    @Test
+    void unknownVersionIsRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PostDtoCodec.decode(new byte[]{42, 0}));
+    }
+}
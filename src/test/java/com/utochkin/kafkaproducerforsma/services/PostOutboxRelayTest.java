@@ -0,0 +1,116 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.mappers.PostOutboxMapper;
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
+import com.utochkin.kafkaproducerforsma.models.PostOutbox;
+import com.utochkin.kafkaproducerforsma.props.OutboxProperties;
+import com.utochkin.kafkaproducerforsma.repository.PostOutboxRepository;
+import com.utochkin.kafkaproducerforsma.sender.FollowerFanOutService;
+import com.utochkin.kafkaproducerforsma.sender.KafkaSenderService;
+import com.utochkin.kafkaproducerforsma.sender.PostOutboxRelay;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PostOutboxRelayTest {
+    @Mock
+    private PostOutboxRepository postOutboxRepository;
+    @Mock
+    private PostOutboxMapper postOutboxMapper;
+    @Mock
+    private KafkaSenderService kafkaSenderService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private ObjectProvider<FollowerFanOutService> followerFanOutServiceProvider;
+    @Mock
+    private FollowerFanOutService followerFanOutService;
+    private PostOutboxRelay postOutboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        OutboxProperties outboxProperties = new OutboxProperties();
+        outboxProperties.setBatchSize(2);
+        outboxProperties.setMaxBatchesPerRun(3);
+        postOutboxRelay = new PostOutboxRelay(postOutboxRepository, postOutboxMapper, kafkaSenderService, outboxProperties, transactionTemplate, followerFanOutServiceProvider);
+        when(followerFanOutServiceProvider.getIfAvailable()).thenReturn(followerFanOutService);
+        when(kafkaSenderService.sendPostState(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+    }
+
+    @Test
+    void relayMarksOnlyAcknowledgedEventsAsPublished() {
+        PostOutbox event1 = PostOutbox.builder().id(1L).userId(10L).postId(100L).eventType(OutboxEventType.POST_CREATED).build();
+        PostOutbox event2 = PostOutbox.builder().id(2L).userId(20L).postId(200L).eventType(OutboxEventType.POST_UPDATED).build();
+        PostDto postDto1 = PostDto.builder().id(100L).build();
+        PostDto postDto2 = PostDto.builder().id(200L).build();
+
+        when(postOutboxRepository.lockPendingEvents(eq(2), any(LocalDateTime.class))).thenReturn(List.of(event1, event2));
+        when(postOutboxMapper.toDto(event1)).thenReturn(postDto1);
+        when(postOutboxMapper.toDto(event2)).thenReturn(postDto2);
+        when(kafkaSenderService.send(postDto1, 10L)).thenReturn(CompletableFuture.completedFuture(null));
+        when(kafkaSenderService.send(postDto2, 20L)).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        postOutboxRelay.relay();
+
+        verify(postOutboxRepository, times(1)).markPublished(eq(List.of(1L)), any(LocalDateTime.class));
+        verify(postOutboxRepository, times(1)).lockPendingEvents(eq(2), any(LocalDateTime.class));
+        verify(followerFanOutService, times(1)).fanOut(postDto1, 10L);
+        verify(followerFanOutService, never()).fanOut(postDto2, 20L);
+        verify(kafkaSenderService, times(1)).sendPostState(100L, postDto1);
+    }
+
+    @Test
+    void deletedEventPublishesTombstoneOnly() {
+        PostOutbox deleted = PostOutbox.builder().id(3L).userId(10L).postId(100L).eventType(OutboxEventType.POST_DELETED).build();
+        when(postOutboxRepository.lockPendingEvents(eq(2), any(LocalDateTime.class))).thenReturn(List.of(deleted));
+
+        postOutboxRelay.relay();
+
+        verify(kafkaSenderService, times(1)).sendPostState(100L, null);
+        verify(kafkaSenderService, never()).send(any(), any());
+        verify(followerFanOutService, never()).fanOut(any(), any());
+        verify(postOutboxRepository, times(1)).markPublished(eq(List.of(3L)), any(LocalDateTime.class));
+    }
+
+    @Test
+    void updateOfDeletedPostIsSkipped() {
+        PostOutbox updated = PostOutbox.builder().id(4L).userId(10L).postId(100L).eventType(OutboxEventType.POST_UPDATED).build();
+        when(postOutboxRepository.lockPendingEvents(eq(2), any(LocalDateTime.class))).thenReturn(List.of(updated));
+        when(postOutboxRepository.getDeletedPostIds(List.of(100L))).thenReturn(List.of(100L));
+
+        postOutboxRelay.relay();
+
+        verify(kafkaSenderService, never()).send(any(), any());
+        verify(kafkaSenderService, never()).sendPostState(any(), any());
+        verify(postOutboxRepository, times(1)).markPublished(eq(List.of(4L)), any(LocalDateTime.class));
+    }
+
+    @Test
+    void relayDoesNothingWhenOutboxIsEmpty() {
+        when(postOutboxRepository.lockPendingEvents(eq(2), any(LocalDateTime.class))).thenReturn(List.of());
+
+        postOutboxRelay.relay();
+
+        verify(kafkaSenderService, never()).send(any(), any());
+        verify(postOutboxRepository, never()).markPublished(any(), any());
+    }
+}
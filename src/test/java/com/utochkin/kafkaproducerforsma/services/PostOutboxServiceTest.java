@@ -0,0 +1,85 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.mappers.PostOutboxMapper;
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
+import com.utochkin.kafkaproducerforsma.models.PostOutbox;
+import com.utochkin.kafkaproducerforsma.props.OutboxProperties;
+import com.utochkin.kafkaproducerforsma.repository.PostOutboxRepository;
+import com.utochkin.kafkaproducerforsma.sender.PostOutboxService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PostOutboxServiceTest {
+    @Mock
+    private PostOutboxRepository postOutboxRepository;
+    @Mock
+    private PostOutboxMapper postOutboxMapper;
+    private OutboxProperties outboxProperties;
+    private PostOutboxService postOutboxService;
+    private final PostDto postDto = PostDto.builder().id(1L).description("Update description").message("Update message").build();
+
+    @BeforeEach
+    void setUp() {
+        outboxProperties = new OutboxProperties();
+        outboxProperties.setUpdateCoalescingWindow(Duration.ofSeconds(5));
+        postOutboxService = new PostOutboxService(postOutboxRepository, postOutboxMapper, outboxProperties);
+    }
+
+    @Test
+    void createdEventIsAvailableImmediately() {
+        PostOutbox created = PostOutbox.builder().createdAt(LocalDateTime.now()).availableAt(LocalDateTime.now()).build();
+        when(postOutboxMapper.toOutbox(postDto, 10L, OutboxEventType.POST_CREATED)).thenReturn(created);
+
+        postOutboxService.enqueue(postDto, 10L, OutboxEventType.POST_CREATED);
+
+        verify(postOutboxRepository, times(1)).save(created);
+        verify(postOutboxRepository, never()).lockPendingUpdate(any());
+    }
+
+    @Test
+    void firstUpdateIsDelayedByCoalescingWindow() {
+        LocalDateTime now = LocalDateTime.now();
+        PostOutbox update = PostOutbox.builder().createdAt(now).availableAt(now).build();
+        when(postOutboxRepository.lockPendingUpdate(1L)).thenReturn(Optional.empty());
+        when(postOutboxMapper.toOutbox(postDto, 10L, OutboxEventType.POST_UPDATED)).thenReturn(update);
+
+        postOutboxService.enqueue(postDto, 10L, OutboxEventType.POST_UPDATED);
+
+        Assertions.assertEquals(now.plusSeconds(5), update.getAvailableAt());
+        verify(postOutboxRepository, times(1)).save(update);
+    }
+
+    @Test
+    void nextUpdateOverwritesPendingUpdate() {
+        PostOutbox pendingUpdate = PostOutbox.builder().id(7L).postId(1L).eventType(OutboxEventType.POST_UPDATED).build();
+        when(postOutboxRepository.lockPendingUpdate(1L)).thenReturn(Optional.of(pendingUpdate));
+
+        postOutboxService.enqueue(postDto, 10L, OutboxEventType.POST_UPDATED);
+
+        verify(postOutboxMapper, times(1)).updateOutbox(pendingUpdate, postDto);
+        verify(postOutboxRepository, never()).save(any());
+    }
+
+    @Test
+    void cancelPendingUpdatesDeletesThem() {
+        postOutboxService.cancelPendingUpdates(1L);
+
+        verify(postOutboxRepository, times(1)).deletePendingUpdates(1L);
+    }
+}
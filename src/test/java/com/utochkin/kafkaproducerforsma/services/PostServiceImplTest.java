@@ -1,32 +1,49 @@
 package com.utochkin.kafkaproducerforsma.services;
 
+import com.utochkin.kafkaproducerforsma.dto.FeedCursor;
+import com.utochkin.kafkaproducerforsma.dto.FeedDeltaDto;
+import com.utochkin.kafkaproducerforsma.dto.FeedPageDto;
 import com.utochkin.kafkaproducerforsma.dto.PostDto;
 import com.utochkin.kafkaproducerforsma.exceptions.AccessDeniedException;
 import com.utochkin.kafkaproducerforsma.exceptions.BadInputDataException;
 import com.utochkin.kafkaproducerforsma.exceptions.PostNotFoundException;
 import com.utochkin.kafkaproducerforsma.mappers.PostMapper;
+import com.utochkin.kafkaproducerforsma.models.DeletedPost;
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
 import com.utochkin.kafkaproducerforsma.models.Post;
 import com.utochkin.kafkaproducerforsma.models.Role;
 import com.utochkin.kafkaproducerforsma.models.User;
+import com.utochkin.kafkaproducerforsma.props.FeedCursorProperties;
+import com.utochkin.kafkaproducerforsma.props.FeedDeltaProperties;
 import com.utochkin.kafkaproducerforsma.props.MinioProperties;
+import com.utochkin.kafkaproducerforsma.repository.DeletedPostRepository;
 import com.utochkin.kafkaproducerforsma.repository.PostRepository;
+import com.utochkin.kafkaproducerforsma.repository.StoredImageRepository;
 import com.utochkin.kafkaproducerforsma.repository.UserRepository;
-import com.utochkin.kafkaproducerforsma.sender.KafkaSenderService;
+import com.utochkin.kafkaproducerforsma.sender.PostOutboxService;
 import com.utochkin.kafkaproducerforsma.services.impl.PostServiceImpl;
+import com.utochkin.kafkaproducerforsma.services.interfaces.FeedCacheService;
+import com.utochkin.kafkaproducerforsma.services.interfaces.FeedRankingService;
+import com.utochkin.kafkaproducerforsma.services.interfaces.ImageLinkService;
+import com.utochkin.kafkaproducerforsma.services.interfaces.TimelineService;
 import io.minio.*;
 import io.minio.errors.*;
 import io.minio.http.Method;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.security.core.Authentication;
@@ -41,6 +58,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -65,7 +83,25 @@ class PostServiceImplTest {
     @Mock
     private MultipartFile multipartFile;
     @Mock
-    private KafkaSenderService kafkaSenderService;
+    private PostOutboxService postOutboxService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private ObjectProvider<TimelineService> timelineService;
+    @Mock
+    private DeletedPostRepository deletedPostRepository;
+    @Mock
+    private FeedDeltaProperties feedDeltaProperties;
+    @Mock
+    private FeedCursorProperties feedCursorProperties;
+    @Mock
+    private ObjectProvider<FeedCacheService> feedCacheService;
+    @Mock
+    private ObjectProvider<FeedRankingService> feedRankingService;
+    @Mock
+    private StoredImageRepository storedImageRepository;
+    @Mock
+    private ImageLinkService imageLinkService;
     @Mock
     private SecurityContext securityContext;
     @Mock
@@ -143,7 +179,150 @@ class PostServiceImplTest {
 
         Assertions.assertEquals(postDtoWithPicture, postService.createPost(postDto, multipartFile));
         verify(postRepository, times(1)).save(post);
-        verify(kafkaSenderService, times(1)).send(postDtoWithPicture, user.getId());
+        verify(postOutboxService, times(1)).enqueue(postDtoWithPicture, user.getId(), OutboxEventType.POST_CREATED);
+    }
+
+    @Test
+    void createPostStreamsImageWithKnownSizeAndContentType() throws Exception {
+        PostDto postDto = PostDto.builder()
+                .description("New description")
+                .message("New message")
+                .build();
+
+        Post post = Post.builder()
+                .id(1L)
+                .description("New description")
+                .message("New message")
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        User user = User.builder()
+                .id(1L)
+                .name("Sergey")
+                .role(Role.ROLE_USER)
+                .build();
+
+        when(postMapper.toEntity(postDto)).thenReturn(post);
+        doReturn(user.getName()).when(authentication).getName();
+        doReturn(authentication).when(securityContext).getAuthentication();
+        SecurityContextHolder.setContext(securityContext);
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+
+        when(minioProperties.getBucket()).thenReturn("images");
+        when(minioProperties.getPartSize()).thenReturn(8L * 1024 * 1024);
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+        when(multipartFile.getOriginalFilename()).thenReturn("picture_for_test.jpg");
+        when(multipartFile.getContentType()).thenReturn("image/jpeg");
+        when(multipartFile.getSize()).thenReturn(1234L);
+        when(multipartFile.getInputStream()).thenReturn(new FileInputStream("src/test/resources/picture_for_test.jpg"));
+
+        postService.createPost(postDto, multipartFile);
+
+        ArgumentCaptor<PutObjectArgs> putObjectArgs = ArgumentCaptor.forClass(PutObjectArgs.class);
+        verify(minioClient, times(1)).putObject(putObjectArgs.capture());
+        Assertions.assertEquals(1234L, putObjectArgs.getValue().objectSize());
+        Assertions.assertEquals(8L * 1024 * 1024, putObjectArgs.getValue().partSize());
+        Assertions.assertEquals("image/jpeg", putObjectArgs.getValue().contentType());
+    }
+
+    @Test
+    void createPostReusesStoredImageWithSameContent() throws Exception {
+        PostDto postDto = PostDto.builder().description("New description").message("New message").build();
+        Post post = Post.builder().id(1L).description("New description").message("New message").createdAt(LocalDateTime.now()).build();
+        User user = User.builder().id(1L).name("Sergey").role(Role.ROLE_USER).build();
+        String expectedName = "sha256/" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(Files.readAllBytes(Path.of("src/test/resources/picture_for_test.jpg")))) + ".jpg";
+
+        when(postMapper.toEntity(postDto)).thenReturn(post);
+        doReturn(user.getName()).when(authentication).getName();
+        doReturn(authentication).when(securityContext).getAuthentication();
+        SecurityContextHolder.setContext(securityContext);
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(minioProperties.getBucket()).thenReturn("images");
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+        when(multipartFile.getContentType()).thenReturn("image/jpeg");
+        when(multipartFile.getSize()).thenReturn(1234L);
+        when(multipartFile.getInputStream()).thenReturn(new FileInputStream("src/test/resources/picture_for_test.jpg"));
+        when(storedImageRepository.getRefCount(expectedName)).thenReturn(Optional.of(2));
+
+        postService.createPost(postDto, multipartFile);
+
+        Assertions.assertEquals(expectedName, post.getImageName());
+        verify(storedImageRepository, times(1)).acquire(expectedName, 1234L, "image/jpeg");
+        verify(minioClient, never()).putObject(any(PutObjectArgs.class));
+    }
+
+    @Test
+    void createPostWithUploadedImageChecksUploadedObject() throws Exception {
+        PostDto postDto = PostDto.builder().description("New description").message("New message").build();
+        Post post = Post.builder().id(1L).description("New description").message("New message").build();
+        User user = User.builder().id(1L).name("Sergey").role(Role.ROLE_USER).build();
+        PostDto savedPostDto = PostDto.builder().id(1L).imageName("1/uploaded.jpeg").build();
+
+        doReturn(user.getName()).when(authentication).getName();
+        doReturn(authentication).when(securityContext).getAuthentication();
+        SecurityContextHolder.setContext(securityContext);
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(postMapper.toEntity(postDto)).thenReturn(post);
+        when(postMapper.toDto(post)).thenReturn(savedPostDto);
+        when(minioProperties.getBucket()).thenReturn("images");
+        when(minioProperties.getMaxUploadSize()).thenReturn(10L * 1024 * 1024);
+        StatObjectResponse stat = mock(StatObjectResponse.class);
+        when(stat.size()).thenReturn(1234L);
+        when(stat.contentType()).thenReturn("image/jpeg");
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenReturn(stat);
+
+        Assertions.assertEquals(savedPostDto, postService.createPostWithUploadedImage(postDto, "pending/1/uploaded.jpeg"));
+        Assertions.assertEquals("1/uploaded.jpeg", post.getImageName());
+        verify(storedImageRepository, times(1)).acquire("1/uploaded.jpeg", 1234L, "image/jpeg");
+        verify(minioClient, times(1)).copyObject(any(CopyObjectArgs.class));
+        verify(minioClient, times(1)).removeObject(RemoveObjectArgs.builder().bucket("images").object("pending/1/uploaded.jpeg").build());
+        verify(postRepository, times(1)).save(post);
+    }
+
+    @Test
+    void createPostWithUploadedImageRejectsImageAttachedToAnotherPost() throws Exception {
+        PostDto postDto = PostDto.builder().description("New description").message("New message").build();
+        User user = User.builder().id(1L).name("Sergey").role(Role.ROLE_USER).build();
+
+        doReturn(user.getName()).when(authentication).getName();
+        doReturn(authentication).when(securityContext).getAuthentication();
+        SecurityContextHolder.setContext(securityContext);
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(minioProperties.getBucket()).thenReturn("images");
+        when(minioProperties.getMaxUploadSize()).thenReturn(10L * 1024 * 1024);
+        StatObjectResponse stat = mock(StatObjectResponse.class);
+        when(stat.size()).thenReturn(1234L);
+        when(stat.contentType()).thenReturn("image/jpeg");
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenReturn(stat);
+        when(storedImageRepository.getRefCount("1/uploaded.jpeg")).thenReturn(Optional.of(2));
+
+        Assertions.assertThrows(BadInputDataException.class, () -> postService.createPostWithUploadedImage(postDto, "pending/1/uploaded.jpeg"));
+        verify(minioClient, never()).copyObject(any(CopyObjectArgs.class));
+        verify(postRepository, never()).save(any());
+    }
+
+    @Test
+    void createPostWithUploadedImageRejectsWrongObject() throws Exception {
+        PostDto postDto = PostDto.builder().description("New description").message("New message").build();
+        User user = User.builder().id(1L).name("Sergey").role(Role.ROLE_USER).build();
+
+        doReturn(user.getName()).when(authentication).getName();
+        doReturn(authentication).when(securityContext).getAuthentication();
+        SecurityContextHolder.setContext(securityContext);
+        when(userRepository.findByName(user.getName())).thenReturn(Optional.of(user));
+        when(minioProperties.getBucket()).thenReturn("images");
+        when(minioProperties.getMaxUploadSize()).thenReturn(10L * 1024 * 1024);
+        StatObjectResponse stat = mock(StatObjectResponse.class);
+        when(stat.size()).thenReturn(1234L);
+        when(stat.contentType()).thenReturn("text/plain");
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenReturn(stat);
+
+        Assertions.assertThrows(AccessDeniedException.class, () -> postService.createPostWithUploadedImage(postDto, "pending/2/uploaded.jpeg"));
+        Assertions.assertThrows(AccessDeniedException.class, () -> postService.createPostWithUploadedImage(postDto, "1/uploaded.jpeg"));
+        Assertions.assertThrows(BadInputDataException.class, () -> postService.createPostWithUploadedImage(postDto, "pending/1/uploaded.txt"));
+        verify(minioClient, times(1)).removeObject(any(RemoveObjectArgs.class));
+        verify(postRepository, never()).save(any());
     }
 
     @Test
@@ -197,7 +376,7 @@ class PostServiceImplTest {
 
         Assertions.assertEquals(postDtoWithPicture, postService.createPost(postDto, null));
         verify(postRepository, times(1)).save(post);
-        verify(kafkaSenderService, times(1)).send(postDtoWithPicture, user.getId());
+        verify(postOutboxService, times(1)).enqueue(postDtoWithPicture, user.getId(), OutboxEventType.POST_CREATED);
     }
 
     @Test
@@ -272,7 +451,7 @@ class PostServiceImplTest {
 
         Assertions.assertEquals(postDtoWithPicture, postService.createPost(postDto, multipartFile));
         verify(postRepository, times(1)).save(post);
-        verify(kafkaSenderService, times(1)).send(postDtoWithPicture, user.getId());    }
+        verify(postOutboxService, times(1)).enqueue(postDtoWithPicture, user.getId(), OutboxEventType.POST_CREATED);    }
 
     @Test
     void createPostWithMultipartFileAlreadyCreateBucket() throws IOException, ServerException, InsufficientDataException, ErrorResponseException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
@@ -323,7 +502,7 @@ class PostServiceImplTest {
 
         Assertions.assertThrows(BadInputDataException.class, () -> postService.createPost(postDto, multipartFile));
         verify(postRepository, never()).save(post);
-        verify(kafkaSenderService, never()).send(postDtoWithPicture, user.getId());
+        verify(postOutboxService, never()).enqueue(postDtoWithPicture, user.getId(), OutboxEventType.POST_CREATED);
     }
 
     @Test
@@ -377,7 +556,7 @@ class PostServiceImplTest {
 
         Assertions.assertThrows(BadInputDataException.class, () -> postService.createPost(postDto, multipartFile));
         verify(postRepository, never()).save(post);
-        verify(kafkaSenderService, never()).send(postDtoWithPicture, user.getId());
+        verify(postOutboxService, never()).enqueue(postDtoWithPicture, user.getId(), OutboxEventType.POST_CREATED);
     }
 
     @Test
@@ -436,7 +615,7 @@ class PostServiceImplTest {
 
         Assertions.assertThrows(BadInputDataException.class, () -> postService.createPost(postDto, multipartFile));
         verify(postRepository, never()).save(post);
-        verify(kafkaSenderService, never()).send(postDtoWithPicture, user.getId());
+        verify(postOutboxService, never()).enqueue(postDtoWithPicture, user.getId(), OutboxEventType.POST_CREATED);
     }
 
     @Test
@@ -576,7 +755,7 @@ class PostServiceImplTest {
         Assertions.assertEquals(updatePostDtoWithPicture, postService.updatePost(post.getId(), updatePostDto, multipartFile));
         verify(minioClient, times(1)).removeObject(RemoveObjectArgs.builder().bucket(minioProperties.getBucket()).object("UUID + Date + picture.jpg").build());
         verify(postRepository, times(1)).save(updatePost);
-        verify(kafkaSenderService, times(1)).send(updatePostDtoWithPicture, user.getId());
+        verify(postOutboxService, times(1)).enqueue(updatePostDtoWithPicture, user.getId(), OutboxEventType.POST_UPDATED);
     }
 
     @Test
@@ -709,7 +888,7 @@ class PostServiceImplTest {
         Assertions.assertEquals(updatePostDtoWithPicture, postService.updatePost(post.getId(), updatePostDto, multipartFile));
         verify(minioClient, never()).removeObject(RemoveObjectArgs.builder().bucket(minioProperties.getBucket()).object("UUID + Date + picture.jpg").build());
         verify(postRepository, times(1)).save(updatePost);
-        verify(kafkaSenderService, times(1)).send(updatePostDtoWithPicture, user.getId());
+        verify(postOutboxService, times(1)).enqueue(updatePostDtoWithPicture, user.getId(), OutboxEventType.POST_UPDATED);
     }
 
     @Test
@@ -749,6 +928,31 @@ class PostServiceImplTest {
 
         Assertions.assertEquals(post.getId(), postService.deletePost(post.getId()));
         verify(minioClient, times(1)).removeObject(RemoveObjectArgs.builder().bucket(minioProperties.getBucket()).object("UUID + Date + picture.jpg").build());
+        verify(postOutboxService, times(1)).cancelPendingUpdates(post.getId());
+        verify(postOutboxService, times(1)).enqueue(any(), eq(user.getId()), eq(OutboxEventType.POST_DELETED));
+        verify(deletedPostRepository, times(1)).save(any(DeletedPost.class));
+        verify(postRepository, times(1)).delete(post);
+    }
+
+    @Test
+    void deletePostKeepsImageReferencedByOtherPosts() throws Exception {
+        User user = User.builder().id(1L).name("Sergey").role(Role.ROLE_USER).posts(new ArrayList<>()).build();
+        Post post = Post.builder()
+                .id(1L)
+                .createdAt(LocalDateTime.now())
+                .imageName("sha256/5d41402abc4b2a76b9719d911017c592.jpg")
+                .user(user)
+                .build();
+
+        when(postRepository.findById(post.getId())).thenReturn(Optional.of(post));
+        doReturn(user.getName()).when(authentication).getName();
+        doReturn(authentication).when(securityContext).getAuthentication();
+        SecurityContextHolder.setContext(securityContext);
+        when(storedImageRepository.release(post.getImageName())).thenReturn(1);
+        when(storedImageRepository.deleteUnreferenced(post.getImageName())).thenReturn(0);
+
+        Assertions.assertEquals(post.getId(), postService.deletePost(post.getId()));
+        verify(minioClient, never()).removeObject(any(RemoveObjectArgs.class));
         verify(postRepository, times(1)).delete(post);
     }
 
@@ -1028,4 +1232,236 @@ class PostServiceImplTest {
         Assertions.assertThrows(AccessDeniedException.class, () -> postService.getAllPosts());
     }
 
-}
\ No newline at end of file
+    @Test
+    void getFeedUserByCursorReturnsNextCursorOfLastPost() {
+        User user1 = User.builder()
+                .id(1L)
+                .name("Sergey")
+                .build();
+
+        LocalDateTime createdAt = LocalDateTime.parse("2024-03-20T16:58:22.014357");
+        Post post = Post.builder()
+                .id(7L)
+                .createdAt(createdAt)
+                .user(user1)
+                .build();
+        PostDto postDto = PostDto.builder()
+                .id(7L)
+                .createdAt(createdAt)
+                .build();
+
+        doReturn(user1.getName()).when(authentication).getName();
+        doReturn(authentication).when(securityContext).getAuthentication();
+        SecurityContextHolder.setContext(securityContext);
+
+        when(userRepository.findByName(user1.getName())).thenReturn(Optional.of(user1));
+        when(feedCursorProperties.getMaxSize()).thenReturn(100);
+        FeedCursor cursor = new FeedCursor(LocalDateTime.parse("2024-03-21T10:00:00"), 9L);
+        when(postRepository.getFeedSliceAfter(1L, cursor.createdAt(), cursor.id(), PageRequest.ofSize(1)))
+                .thenReturn(new SliceImpl<>(List.of(post), PageRequest.ofSize(1), true));
+        when(postMapper.toListDto(List.of(post))).thenReturn(List.of(postDto));
+
+        FeedPageDto page = postService.getFeedUserByCursor(cursor.encode(), 1);
+
+        Assertions.assertEquals(List.of(postDto), page.getPosts());
+        Assertions.assertTrue(page.isHasNext());
+        Assertions.assertEquals(new FeedCursor(createdAt, 7L), FeedCursor.decode(page.getNextCursor()));
+        verify(postRepository, never()).getLastPostsFollowers(any(), any());
+    }
+
+    @Test
+    void getFeedUserByCursorWhenCursorIsIncorrect() {
+        User user1 = User.builder()
+                .id(1L)
+                .name("Sergey")
+                .build();
+
+        doReturn(user1.getName()).when(authentication).getName();
+        doReturn(authentication).when(securityContext).getAuthentication();
+        SecurityContextHolder.setContext(securityContext);
+
+        when(userRepository.findByName(user1.getName())).thenReturn(Optional.of(user1));
+        when(feedCursorProperties.getMaxSize()).thenReturn(100);
+
+        Assertions.assertThrows(BadInputDataException.class, () -> postService.getFeedUserByCursor("not a cursor", 10));
+    }
+
+    @Test
+    void getFeedUserByCursorCapsSize() {
+        User user1 = User.builder()
+                .id(1L)
+                .name("Sergey")
+                .build();
+
+        doReturn(user1.getName()).when(authentication).getName();
+        doReturn(authentication).when(securityContext).getAuthentication();
+        SecurityContextHolder.setContext(securityContext);
+
+        when(userRepository.findByName(user1.getName())).thenReturn(Optional.of(user1));
+        when(feedCursorProperties.getMaxSize()).thenReturn(100);
+        when(postRepository.getFeedSlice(1L, PageRequest.ofSize(100)))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.ofSize(100), false));
+        when(postMapper.toListDto(List.of())).thenReturn(List.of());
+
+        FeedPageDto page = postService.getFeedUserByCursor(null, 1_000_000);
+
+        Assertions.assertTrue(page.getPosts().isEmpty());
+        verify(postRepository, times(1)).getFeedSlice(1L, PageRequest.ofSize(100));
+    }
+
+    @Test
+    void getFeedUserByCursorRejectsNonPositiveSize() {
+        Assertions.assertThrows(BadInputDataException.class, () -> postService.getFeedUserByCursor(null, 0));
+        verify(postRepository, never()).getFeedSlice(any(), any());
+    }
+
+    @Test
+    void getFeedUserSinceReturnsNewPostsAndDeletedIds() {
+        User user1 = User.builder()
+                .id(1L)
+                .name("Sergey")
+                .build();
+
+        LocalDateTime watermark = LocalDateTime.parse("2024-03-20T16:58:22.014357");
+        LocalDateTime createdAt = watermark.plusMinutes(5);
+        Post post = Post.builder()
+                .id(12L)
+                .createdAt(createdAt)
+                .user(user1)
+                .build();
+        PostDto postDto = PostDto.builder()
+                .id(12L)
+                .createdAt(createdAt)
+                .build();
+
+        doReturn(user1.getName()).when(authentication).getName();
+        doReturn(authentication).when(securityContext).getAuthentication();
+        SecurityContextHolder.setContext(securityContext);
+
+        when(userRepository.findByName(user1.getName())).thenReturn(Optional.of(user1));
+        when(feedDeltaProperties.getMaxLimit()).thenReturn(500);
+        when(postRepository.findById(10L)).thenReturn(Optional.empty());
+        when(deletedPostRepository.findById(10L)).thenReturn(Optional.of(DeletedPost.builder().postId(10L).postCreatedAt(watermark).build()));
+        when(postRepository.getFeedSliceSince(1L, watermark, 10L, PageRequest.ofSize(100)))
+                .thenReturn(new SliceImpl<>(List.of(post), PageRequest.ofSize(100), false));
+        when(postMapper.toListDto(List.of(post))).thenReturn(List.of(postDto));
+        when(deletedPostRepository.getTombstonesSince(1L, watermark, 0L, 101))
+                .thenReturn(List.of(tombstone(10L, watermark.plusMinutes(1)), tombstone(11L, watermark.plusMinutes(2))));
+
+        FeedDeltaDto delta = postService.getFeedUserSince(10L, null, null, null, 100);
+
+        Assertions.assertEquals(List.of(postDto), delta.getPosts());
+        Assertions.assertEquals(List.of(10L, 11L), delta.getDeletedPostIds());
+        Assertions.assertEquals(12L, delta.getNewestPostId());
+        Assertions.assertEquals(createdAt, delta.getNewestCreatedAt());
+        Assertions.assertEquals(watermark.plusMinutes(2), delta.getDeletedUntil());
+        Assertions.assertEquals(11L, delta.getDeletedUntilPostId());
+        Assertions.assertFalse(delta.isHasMore());
+    }
+
+    @Test
+    void getFeedUserSinceUsesDeletionWatermarkAndBoundsTombstones() {
+        User user1 = User.builder()
+                .id(1L)
+                .name("Sergey")
+                .build();
+
+        LocalDateTime watermark = LocalDateTime.parse("2024-03-20T16:58:22.014357");
+        LocalDateTime deletedSince = watermark.plusDays(3);
+
+        doReturn(user1.getName()).when(authentication).getName();
+        doReturn(authentication).when(securityContext).getAuthentication();
+        SecurityContextHolder.setContext(securityContext);
+
+        when(userRepository.findByName(user1.getName())).thenReturn(Optional.of(user1));
+        when(feedDeltaProperties.getMaxLimit()).thenReturn(500);
+        when(postRepository.getFeedSliceSince(1L, watermark, Long.MAX_VALUE, PageRequest.ofSize(2)))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.ofSize(2), false));
+        when(postMapper.toListDto(List.of())).thenReturn(List.of());
+        when(deletedPostRepository.getTombstonesSince(1L, deletedSince, 19L, 3))
+                .thenReturn(List.of(tombstone(20L, deletedSince), tombstone(21L, deletedSince),
+                        tombstone(22L, deletedSince.plusMinutes(3))));
+
+        FeedDeltaDto delta = postService.getFeedUserSince(null, watermark, deletedSince, 19L, 2);
+
+        Assertions.assertEquals(List.of(20L, 21L), delta.getDeletedPostIds());
+        Assertions.assertEquals(deletedSince, delta.getDeletedUntil());
+        Assertions.assertEquals(21L, delta.getDeletedUntilPostId());
+        Assertions.assertEquals(watermark, delta.getNewestCreatedAt());
+        Assertions.assertTrue(delta.isHasMore());
+    }
+
+    @Test
+    void getFeedUserSinceWithoutNewDeletionsKeepsDeletionWatermark() {
+        User user1 = User.builder()
+                .id(1L)
+                .name("Sergey")
+                .build();
+
+        LocalDateTime watermark = LocalDateTime.parse("2024-03-20T16:58:22.014357");
+        LocalDateTime deletedSince = watermark.plusDays(3);
+
+        doReturn(user1.getName()).when(authentication).getName();
+        doReturn(authentication).when(securityContext).getAuthentication();
+        SecurityContextHolder.setContext(securityContext);
+
+        when(userRepository.findByName(user1.getName())).thenReturn(Optional.of(user1));
+        when(feedDeltaProperties.getMaxLimit()).thenReturn(500);
+        when(postRepository.getFeedSliceSince(1L, watermark, Long.MAX_VALUE, PageRequest.ofSize(100)))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.ofSize(100), false));
+        when(postMapper.toListDto(List.of())).thenReturn(List.of());
+        when(deletedPostRepository.getTombstonesSince(1L, deletedSince, 25L, 101)).thenReturn(List.of());
+
+        FeedDeltaDto delta = postService.getFeedUserSince(null, watermark, deletedSince, 25L, 100);
+
+        Assertions.assertTrue(delta.getDeletedPostIds().isEmpty());
+        Assertions.assertEquals(deletedSince, delta.getDeletedUntil());
+        Assertions.assertEquals(25L, delta.getDeletedUntilPostId());
+        Assertions.assertFalse(delta.isHasMore());
+    }
+
+    @Test
+    void getRankedFeedUserRejectsNegativePageAndEmptySize() {
+        Assertions.assertThrows(BadInputDataException.class, () -> postService.getRankedFeedUser(-1, 10));
+        Assertions.assertThrows(BadInputDataException.class, () -> postService.getRankedFeedUser(0, 0));
+        verify(feedRankingService, never()).getIfAvailable();
+    }
+
+    @Test
+    void getFeedUserSinceRejectsNonPositiveLimit() {
+        Assertions.assertThrows(BadInputDataException.class,
+                () -> postService.getFeedUserSince(null, LocalDateTime.now(), null, null, 0));
+        verify(postRepository, never()).getFeedSliceSince(any(), any(), any(), any());
+    }
+
+    @Test
+    void getFeedUserSinceWithoutWatermark() {
+        User user1 = User.builder()
+                .id(1L)
+                .name("Sergey")
+                .build();
+
+        doReturn(user1.getName()).when(authentication).getName();
+        doReturn(authentication).when(securityContext).getAuthentication();
+        SecurityContextHolder.setContext(securityContext);
+
+        when(userRepository.findByName(user1.getName())).thenReturn(Optional.of(user1));
+
+        Assertions.assertThrows(BadInputDataException.class, () -> postService.getFeedUserSince(null, null, null, null, 100));
+    }
+
+    private static DeletedPostRepository.Tombstone tombstone(Long postId, LocalDateTime deletedAt) {
+        return new DeletedPostRepository.Tombstone() {
+            @Override
+            public Long getPostId() {
+                return postId;
+            }
+
+            @Override
+            public LocalDateTime getDeletedAt() {
+                return deletedAt;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.props.KafkaSenderProperties;
+import com.utochkin.kafkaproducerforsma.sender.ReactiveNotificationPublisher;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.reactivestreams.Publisher;
+import org.springframework.kafka.support.SendResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReactiveNotificationPublisherTest {
+    private static final String TOPIC = "topic-notification-user";
+
+    @Mock
+    private KafkaSender<Long, Object> sender;
+    private KafkaSenderProperties kafkaSenderProperties;
+    private ReactiveNotificationPublisher publisher;
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        kafkaSenderProperties = new KafkaSenderProperties();
+        kafkaSenderProperties.setMaxInFlight(100);
+        kafkaSenderProperties.getReactive().setBatchSize(3);
+        kafkaSenderProperties.getReactive().setBatchWindow(Duration.ofMillis(200));
+        kafkaSenderProperties.getReactive().setConcurrency(1);
+        kafkaSenderProperties.getReactive().setMaxRetries(2);
+        kafkaSenderProperties.getReactive().setRetryBackoff(Duration.ofMillis(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (publisher != null) {
+            publisher.destroy();
+        }
+    }
+
+    @Test
+    void recordsAreSentInBatchesOfBatchSizeOrAfterWindow() throws Exception {
+        when(sender.send(any())).thenAnswer(invocation -> acknowledge(invocation.getArgument(0)));
+        publisher = new ReactiveNotificationPublisher(sender, kafkaSenderProperties);
+
+        List<CompletableFuture<SendResult<Long, Object>>> futures = publishAll(5);
+
+        for (int i = 0; i < futures.size(); i++) {
+            SendResult<Long, Object> result = futures.get(i).get(2, TimeUnit.SECONDS);
+            Assertions.assertEquals((long) i, result.getProducerRecord().key());
+        }
+        Assertions.assertEquals(List.of(3, 2), batchSizes);
+    }
+
+    @Test
+    void batchIsRetriedUntilAcknowledged() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        when(sender.send(any())).thenAnswer(invocation -> attempts.incrementAndGet() <= 2
+                ? Flux.error(new IllegalStateException("broker down"))
+                : acknowledge(invocation.getArgument(0)));
+        publisher = new ReactiveNotificationPublisher(sender, kafkaSenderProperties);
+
+        List<CompletableFuture<SendResult<Long, Object>>> futures = publishAll(3);
+
+        for (CompletableFuture<SendResult<Long, Object>> future : futures) {
+            Assertions.assertNotNull(future.get(2, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void recordsFailWhenRetriesAreExhausted() {
+        AtomicInteger attempts = new AtomicInteger();
+        when(sender.send(any())).thenAnswer(invocation -> {
+            attempts.incrementAndGet();
+            return Flux.error(new IllegalStateException("broker down"));
+        });
+        publisher = new ReactiveNotificationPublisher(sender, kafkaSenderProperties);
+
+        List<CompletableFuture<SendResult<Long, Object>>> futures = publishAll(3);
+
+        for (CompletableFuture<SendResult<Long, Object>> future : futures) {
+            Assertions.assertThrows(ExecutionException.class, () -> future.get(2, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void recordsSurviveWindowsWhileAllBatchesAreInFlight() throws Exception {
+        kafkaSenderProperties.getReactive().setBatchSize(1);
+        kafkaSenderProperties.getReactive().setBatchWindow(Duration.ofMillis(10));
+        Sinks.Empty<Void> release = Sinks.empty();
+        AtomicInteger attempts = new AtomicInteger();
+        when(sender.send(any())).thenAnswer(invocation -> attempts.incrementAndGet() == 1
+                ? release.asMono().thenMany(acknowledge(invocation.getArgument(0)))
+                : acknowledge(invocation.getArgument(0)));
+        publisher = new ReactiveNotificationPublisher(sender, kafkaSenderProperties);
+
+        List<CompletableFuture<SendResult<Long, Object>>> futures = publishAll(3);
+        Thread.sleep(100);
+
+        Assertions.assertTrue(futures.stream().noneMatch(CompletableFuture::isDone));
+        release.tryEmitEmpty();
+        for (CompletableFuture<SendResult<Long, Object>> future : futures) {
+            Assertions.assertNotNull(future.get(2, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(List.of(1, 1, 1), batchSizes);
+    }
+
+    private List<CompletableFuture<SendResult<Long, Object>>> publishAll(int count) {
+        List<CompletableFuture<SendResult<Long, Object>>> futures = new ArrayList<>();
+        for (long key = 0; key < count; key++) {
+            futures.add(publisher.publish(TOPIC, key, "value " + key));
+        }
+        return futures;
+    }
+
+    private <T> Flux<SenderResult<T>> acknowledge(Publisher<SenderRecord<Long, Object, T>> records) {
+        return Flux.from(records)
+                .collectList()
+                .doOnNext(batch -> batchSizes.add(batch.size()))
+                .flatMapIterable(batch -> batch)
+                .map(record -> acknowledged(record.correlationMetadata()));
+    }
+
+    private static <T> SenderResult<T> acknowledged(T correlationMetadata) {
+        return new SenderResult<>() {
+            @Override
+            public RecordMetadata recordMetadata() {
+                return new RecordMetadata(new TopicPartition(TOPIC, 0), 0L, 0, 0L, 0, 0);
+            }
+
+            @Override
+            public Exception exception() {
+                return null;
+            }
+
+            @Override
+            public T correlationMetadata() {
+                return correlationMetadata;
+            }
+        };
+    }
+}
@@ -0,0 +1,107 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.exceptions.NotificationOverflowException;
+import com.utochkin.kafkaproducerforsma.props.SpillJournalProperties;
+import com.utochkin.kafkaproducerforsma.sender.SpillJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+class SpillJournalTest {
+
+    @TempDir
+    Path directory;
+    private SpillJournalProperties spillJournalProperties;
+
+    @BeforeEach
+    void setUp() {
+        spillJournalProperties = new SpillJournalProperties();
+        spillJournalProperties.setDirectory(directory.toString());
+        spillJournalProperties.setSegmentSize(256);
+        spillJournalProperties.setMaxSegments(3);
+    }
+
+    @Test
+    void recordsAreReadInOrderAcrossSegments() throws IOException {
+        SpillJournal spillJournal = new SpillJournal(spillJournalProperties, new SimpleMeterRegistry());
+        for (long i = 1; i <= 4; i++) {
+            spillJournal.spill("topic-notification-user", i, post(i));
+        }
+
+        List<SpillJournal.JournalRecord> records = spillJournal.read(10);
+
+        Assertions.assertEquals(List.of(1L, 2L, 3L, 4L), records.stream().map(SpillJournal.JournalRecord::key).toList());
+        Assertions.assertEquals(post(3L), records.get(2).value());
+        Assertions.assertEquals("topic-notification-user", records.get(0).topic());
+    }
+
+    @Test
+    void recordIsAppendedOnlyBehindPendingRecords() throws IOException {
+        SpillJournal spillJournal = new SpillJournal(spillJournalProperties, new SimpleMeterRegistry());
+
+        Assertions.assertFalse(spillJournal.spillIfPending("topic-notification-user", 1L, post(1L)));
+        spillJournal.spill("topic-notification-user", 2L, post(2L));
+        Assertions.assertTrue(spillJournal.spillIfPending("topic-notification-user", 3L, post(3L)));
+
+        List<SpillJournal.JournalRecord> records = spillJournal.read(10);
+        Assertions.assertEquals(List.of(2L, 3L), records.stream().map(SpillJournal.JournalRecord::key).toList());
+        spillJournal.commit(records.get(1));
+        Assertions.assertFalse(spillJournal.hasPending());
+    }
+
+    @Test
+    void committedPositionSurvivesRestart() throws IOException {
+        SpillJournal spillJournal = new SpillJournal(spillJournalProperties, new SimpleMeterRegistry());
+        spillJournal.spill("topic-notification-user", 1L, post(1L));
+        spillJournal.spill("topic-notification-user", 2L, post(2L));
+        spillJournal.commit(spillJournal.read(1).get(0));
+        spillJournal.destroy();
+
+        SpillJournal reopened = new SpillJournal(spillJournalProperties, new SimpleMeterRegistry());
+        List<SpillJournal.JournalRecord> records = reopened.read(10);
+
+        Assertions.assertEquals(1, records.size());
+        Assertions.assertEquals(2L, records.get(0).key());
+        reopened.commit(records.get(0));
+        Assertions.assertTrue(reopened.isEmpty());
+    }
+
+    @Test
+    void spilledRecordIsOnDiskWithoutShutdown() throws IOException {
+        SpillJournal spillJournal = new SpillJournal(spillJournalProperties, new SimpleMeterRegistry());
+        spillJournal.spill("topic-notification-user", 1L, post(1L));
+
+        SpillJournal reopened = new SpillJournal(spillJournalProperties, new SimpleMeterRegistry());
+        List<SpillJournal.JournalRecord> records = reopened.read(10);
+
+        Assertions.assertEquals(1, records.size());
+        Assertions.assertEquals(post(1L), records.get(0).value());
+    }
+
+    @Test
+    void fullJournalRejectsRecords() throws IOException {
+        SpillJournal spillJournal = new SpillJournal(spillJournalProperties, new SimpleMeterRegistry());
+
+        Assertions.assertThrows(NotificationOverflowException.class, () -> {
+            for (long i = 1; i <= 100; i++) {
+                spillJournal.spill("topic-notification-user", i, post(i));
+            }
+        });
+    }
+
+    private PostDto post(Long id) {
+        return PostDto.builder()
+                .id(id)
+                .description("Description " + id)
+                .message("Message " + id)
+                .authorName("Sergey")
+                .build();
+    }
+}
@@ -0,0 +1,218 @@
+package com.utochkin.kafkaproducerforsma.services;
+
+import com.utochkin.kafkaproducerforsma.config.ExecutorConfig;
+import com.utochkin.kafkaproducerforsma.dto.PostDto;
+import com.utochkin.kafkaproducerforsma.events.PostChangedEvent;
+import com.utochkin.kafkaproducerforsma.mappers.PostMapper;
+import com.utochkin.kafkaproducerforsma.models.OutboxEventType;
+import com.utochkin.kafkaproducerforsma.models.Post;
+import com.utochkin.kafkaproducerforsma.props.TimelineProperties;
+import com.utochkin.kafkaproducerforsma.repository.PostRepository;
+import com.utochkin.kafkaproducerforsma.repository.UserRepository;
+import com.utochkin.kafkaproducerforsma.services.impl.TimelineServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class TimelineServiceImplTest {
+    @Mock
+    private StringRedisTemplate redisTemplate;
+    @Mock
+    private RedisTemplate<String, PostDto> postDtoRedisTemplate;
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+    @Mock
+    private SetOperations<String, String> setOperations;
+    @Mock
+    private ValueOperations<String, PostDto> valueOperations;
+    @Mock
+    private PostRepository postRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private PostMapper postMapper;
+    private ThreadPoolTaskExecutor executor;
+    private TimelineServiceImpl timelineService;
+    private final PageRequest firstPage = PageRequest.of(0, 2, Sort.by("created_at").descending());
+    private final PostDto postDto1 = PostDto.builder().id(1L).message("first").build();
+    private final PostDto postDto2 = PostDto.builder().id(2L).message("second").build();
+
+    @BeforeEach
+    void setUp() {
+        TimelineProperties timelineProperties = new TimelineProperties();
+        timelineProperties.setMaxSize(10);
+        timelineProperties.setFanOutChunkSize(2);
+        timelineProperties.setCelebrityThreshold(3);
+        timelineProperties.setCelebrityDemoteThreshold(2);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(postDtoRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        executor = ExecutorConfig.boundedExecutor("timelineExecutor", 2, 100, meterRegistry);
+        executor.initialize();
+        timelineService = new TimelineServiceImpl(redisTemplate, postDtoRedisTemplate, postRepository, userRepository,
+                postMapper, timelineProperties, executor, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void feedIsServedFromTimelineInScoreOrder() {
+        when(zSetOperations.zCard("timeline:1")).thenReturn(5L);
+        when(zSetOperations.reverseRange("timeline:1", 0, 1)).thenReturn(new LinkedHashSet<>(List.of("2", "1")));
+        when(valueOperations.multiGet(List.of("post:2", "post:1"))).thenReturn(Arrays.asList(postDto2, postDto1));
+
+        Assertions.assertEquals(Optional.of(List.of(postDto2, postDto1)), timelineService.getFeed(1L, firstPage));
+        verify(postRepository, never()).getLastPostsFollowers(any(), any());
+        verify(postRepository, never()).findAllById(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void missingPostBodiesAreLoadedFromDatabase() {
+        Post post1 = Post.builder().id(1L).build();
+        when(zSetOperations.zCard("timeline:1")).thenReturn(5L);
+        when(zSetOperations.reverseRange("timeline:1", 0, 1)).thenReturn(new LinkedHashSet<>(List.of("2", "1")));
+        when(valueOperations.multiGet(List.of("post:2", "post:1"))).thenReturn(Arrays.asList(postDto2, null));
+        when(postRepository.findAllById(List.of(1L))).thenReturn(List.of(post1));
+        when(postMapper.toListDto(List.of(post1))).thenReturn(List.of(postDto1));
+
+        Assertions.assertEquals(Optional.of(List.of(postDto2, postDto1)), timelineService.getFeed(1L, firstPage));
+        verify(postDtoRedisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    void coldUserWithoutPostsFallsBackToDatabase() {
+        when(zSetOperations.zCard("timeline:1")).thenReturn(0L);
+        when(postRepository.getLastPostIdsFollowers(1L, 10)).thenReturn(Collections.emptyList());
+
+        Assertions.assertEquals(Optional.empty(), timelineService.getFeed(1L, firstPage));
+        verify(zSetOperations, never()).add(anyString(), anySet());
+    }
+
+    @Test
+    void backfillCreatesTimelineBeforeReadingDatabase() {
+        PostRepository.TimelineEntry entry = mock(PostRepository.TimelineEntry.class);
+        when(entry.getId()).thenReturn(1L);
+        when(entry.getScore()).thenReturn(1000L);
+        when(zSetOperations.zCard("timeline:1")).thenReturn(0L, 2L);
+        when(postRepository.getLastPostIdsFollowers(1L, 10)).thenReturn(List.of(entry));
+        when(zSetOperations.reverseRange("timeline:1", 0, 1)).thenReturn(new LinkedHashSet<>(List.of("2", "1")));
+        when(valueOperations.multiGet(List.of("post:2", "post:1"))).thenReturn(Arrays.asList(postDto2, postDto1));
+
+        // post 2 was committed during the SQL read and pushed into the placeholder set
+        Assertions.assertEquals(Optional.of(List.of(postDto2, postDto1)), timelineService.getFeed(1L, firstPage));
+        InOrder inOrder = inOrder(zSetOperations, postRepository);
+        inOrder.verify(zSetOperations).add("timeline:1", "0", Double.NEGATIVE_INFINITY);
+        inOrder.verify(postRepository).getLastPostIdsFollowers(1L, 10);
+        inOrder.verify(zSetOperations).remove("timeline:1", "0");
+    }
+
+    @Test
+    void timelineBeingBackfilledIsReadFromDatabase() {
+        when(zSetOperations.zCard("timeline:1")).thenReturn(2L);
+        when(zSetOperations.score("timeline:1", "0")).thenReturn(Double.NEGATIVE_INFINITY);
+
+        Assertions.assertEquals(Optional.empty(), timelineService.getFeed(1L, firstPage));
+        verify(zSetOperations, never()).reverseRange(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void pageBeyondTimelineCapacityFallsBackToDatabase() {
+        Assertions.assertEquals(Optional.empty(), timelineService.getFeed(1L, PageRequest.of(5, 2, Sort.by("created_at").descending())));
+        verifyNoInteractions(zSetOperations);
+    }
+
+    @Test
+    void unavailableRedisFallsBackToDatabase() {
+        when(zSetOperations.zCard("timeline:1")).thenThrow(new RedisConnectionFailureException("down"));
+
+        Assertions.assertEquals(Optional.empty(), timelineService.getFeed(1L, firstPage));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createdPostIsPushedToEveryFollowerChunk() {
+        when(userRepository.getFollowerIdsAfter(7L, 0L, 2)).thenReturn(List.of(1L, 2L));
+        when(userRepository.getFollowerIdsAfter(7L, 2L, 2)).thenReturn(List.of(3L));
+
+        timelineService.onPostChanged(new PostChangedEvent(5L, 7L, LocalDateTime.of(2024, 1, 1, 0, 0), OutboxEventType.POST_CREATED));
+
+        verify(redisTemplate, timeout(1000)).execute(any(RedisScript.class), eq(List.of("timeline:1", "timeline:2")), any(), eq("5"), eq("10"));
+        verify(redisTemplate, timeout(1000)).execute(any(RedisScript.class), eq(List.of("timeline:3")), any(), eq("5"), eq("10"));
+        verify(postDtoRedisTemplate, never()).delete(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void celebrityPostsAreMergedIntoTimelineByCreatedAt() {
+        PostDto postDto3 = PostDto.builder().id(3L).message("third").build();
+        PageRequest firstThree = PageRequest.of(0, 3, Sort.by("created_at").descending());
+        when(zSetOperations.zCard("timeline:1")).thenReturn(2L);
+        when(setOperations.members("celebrities")).thenReturn(Set.of("9"));
+        when(userRepository.getFollowedAmong(1L, List.of(9L))).thenReturn(List.of(9L));
+        when(zSetOperations.reverseRangeWithScores("timeline:1", 0, 2)).thenReturn(new LinkedHashSet<>(List.of(
+                new DefaultTypedTuple<>("3", 300.0), new DefaultTypedTuple<>("1", 100.0))));
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(new LinkedHashSet<>(List.of(
+                new DefaultTypedTuple<>("2", 200.0), new DefaultTypedTuple<>("1", 100.0)))));
+        when(valueOperations.multiGet(List.of("post:3", "post:2", "post:1"))).thenReturn(Arrays.asList(postDto3, postDto2, postDto1));
+
+        Assertions.assertEquals(Optional.of(List.of(postDto3, postDto2, postDto1)), timelineService.getFeed(1L, firstThree));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void celebrityPostIsStoredOnceInsteadOfPushedToFollowers() {
+        when(setOperations.isMember("celebrities", "7")).thenReturn(true);
+        when(userRepository.countFollowersUpTo(7L, 3)).thenReturn(3L);
+
+        timelineService.onPostChanged(new PostChangedEvent(5L, 7L, LocalDateTime.of(2024, 1, 1, 0, 0), OutboxEventType.POST_CREATED));
+
+        verify(redisTemplate, timeout(1000)).execute(any(RedisScript.class), eq(List.of("author:7")), any(), eq("5"), eq("10"));
+        verify(userRepository, never()).getFollowerIdsAfter(any(), any(), anyInt());
+    }
+
+    @Test
+    void pushIsDroppedWhenExecutorIsSaturated() {
+        TimelineServiceImpl saturated = new TimelineServiceImpl(redisTemplate, postDtoRedisTemplate, postRepository, userRepository,
+                postMapper, new TimelineProperties(), task -> {
+            throw new RejectedExecutionException("Executor timelineExecutor is saturated");
+        }, new SimpleMeterRegistry());
+
+        Assertions.assertDoesNotThrow(() -> saturated.onPostChanged(
+                new PostChangedEvent(5L, 7L, LocalDateTime.of(2024, 1, 1, 0, 0), OutboxEventType.POST_CREATED)));
+        verifyNoInteractions(userRepository);
+    }
+}